@@ -26,7 +26,8 @@ const SuperAdminAnalyticsPage: React.FC = () => {
   const [displayData, setDisplayData] = useState<AnalyticsResponse | undefined>(undefined);
 
   useEffect(() => {
-    const es = analyticsService.stream();
+    let es: EventSource | undefined;
+    let cancelled = false;
     const onMessage = (ev: MessageEvent) => {
       try {
         const data = JSON.parse(ev.data);
@@ -39,13 +40,23 @@ const SuperAdminAnalyticsPage: React.FC = () => {
         // ignore parse errors
       }
     };
-    es.addEventListener('message', onMessage);
-    es.onerror = () => {
-      es.close();
-    };
+    analyticsService.stream().then((source) => {
+      if (cancelled) {
+        source.close();
+        return;
+      }
+      es = source;
+      source.addEventListener('message', onMessage);
+      source.onerror = () => {
+        source.close();
+      };
+    }).catch(() => {
+      // live updates are optional; the page still shows the REST data
+    });
     return () => {
-      es.removeEventListener('message', onMessage as any);
-      es.close();
+      cancelled = true;
+      es?.removeEventListener('message', onMessage as any);
+      es?.close();
     };
   }, []);
 
@@ -34,17 +34,28 @@ export const analyticsService = {
   customer(params: { userId: number; from?: string; to?: string }) {
     return apiClient.get<AnalyticsResponse>('/analytics/customer', { params }).then((r: { data: AnalyticsResponse }) => r.data);
   },
-  stream(): EventSource {
-    const token = localStorage.getItem('token');
-    // Note: EventSource does not allow setting headers; if auth is required, use a token query param or fallback to no auth
+  async stream(): Promise<EventSource> {
+    // EventSource cannot set headers; trade the bearer token for a short-lived stream ticket
+    const { data } = await apiClient.post<{ ticket: string; expiresIn: number }>('/analytics/stream/ticket');
     const url = new URL(apiClient.defaults.baseURL + '/analytics/stream');
-    if (token) url.searchParams.set('token', token);
+    url.searchParams.set('ticket', data.ticket);
     return new EventSource(url.toString());
   },
-  downloadDailyPdf(date?: string) {
-    return apiClient.post('/analytics/report/daily', null, {
+  async downloadDailyPdf(date?: string): Promise<Blob> {
+    const res = await apiClient.post('/analytics/report/daily', null, {
       params: date ? { date } : {},
       responseType: 'blob',
-    }).then(res => res.data as Blob);
+    });
+    if (res.status !== 202) return res.data as Blob;
+    // still rendering: poll the job until its file is ready
+    const job = JSON.parse(await (res.data as Blob).text()) as { id: string };
+    for (;;) {
+      await new Promise(resolve => setTimeout(resolve, 2000));
+      const { data } = await apiClient.get<{ status: string; error?: string }>(`/analytics/report/jobs/${job.id}`);
+      if (data.status === 'FAILED') throw new Error(data.error || 'Report failed');
+      if (data.status === 'DONE') break;
+    }
+    const file = await apiClient.get(`/analytics/report/jobs/${job.id}/file`, { responseType: 'blob' });
+    return file.data as Blob;
   }
 };
@@ -0,0 +1,70 @@
+package com.moviebooking.benchmark;
+
+import com.moviebooking.entity.Booking;
+import com.moviebooking.entity.BookingRollup;
+import com.moviebooking.repository.MovieRepository;
+import com.moviebooking.repository.TheaterRepository;
+import com.moviebooking.service.analytics.AnalyticsSummarizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dashboard aggregation ({@link AnalyticsSummarizer#summarize}, behind the
+ * analytics endpoints and the live stream) over synthetic rollup rows spread
+ * across a year, 200 theaters and 2000 movies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AnalyticsBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private AnalyticsSummarizer summarizer;
+    private List<BookingRollup> data;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        summarizer = new AnalyticsSummarizer(
+                Stubs.repository(MovieRepository.class, id -> null),
+                Stubs.repository(TheaterRepository.class, id -> null));
+        Random random = new Random(42);
+        LocalDate first = LocalDate.of(2024, 1, 1);
+        // shared day, id and amount instances keep 10M rows within the heap
+        LocalDate[] days = new LocalDate[366];
+        for (int i = 0; i < days.length; i++) days[i] = first.plusDays(i);
+        BigDecimal[] amounts = new BigDecimal[1000];
+        for (int i = 0; i < amounts.length; i++) amounts[i] = BigDecimal.valueOf(150 + i, 2);
+        Long[] ids = new Long[2000];
+        for (int i = 0; i < ids.length; i++) ids[i] = (long) i;
+        Booking.Status[] statuses = Booking.Status.values();
+        data = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            BookingRollup r = new BookingRollup();
+            r.setDay(days[random.nextInt(days.length)]);
+            r.setTheaterId(ids[random.nextInt(200)]);
+            r.setMovieId(ids[random.nextInt(ids.length)]);
+            r.setStatus(statuses[random.nextInt(statuses.length)]);
+            r.setBookings(1 + random.nextInt(20));
+            r.setSeats(r.getBookings() * 2);
+            r.setRevenue(amounts[random.nextInt(amounts.length)]);
+            data.add(r);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> summarize() {
+        return summarizer.summarize(data, 1_000_000, 400_000);
+    }
+}
@@ -0,0 +1,67 @@
+package com.moviebooking.benchmark;
+
+import com.moviebooking.entity.User;
+import com.moviebooking.repository.UserRepository;
+import com.moviebooking.security.AuthPrincipal;
+import com.moviebooking.security.TokenCodec;
+import com.moviebooking.service.AuthService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token checks done on every authenticated request: signature and claim
+ * parsing alone, and {@link AuthService#validateToken} with the user served
+ * from its cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthBenchmark {
+
+    private TokenCodec tokenCodec;
+    private AuthService authService;
+    private String token;
+    private String tampered;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tokenCodec = new TokenCodec("bench:MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=", "bench", 24);
+        User user = new User(42L, "finance@moviehub.com", null, "Fin", "Ance",
+                User.UserRole.SUPER_ADMIN, true, LocalDateTime.now(), null);
+        authService = new AuthService();
+        ReflectionTestUtils.setField(authService, "userRepository",
+                Stubs.repository(UserRepository.class, id -> user));
+        ReflectionTestUtils.setField(authService, "tokenCodec", tokenCodec);
+        ReflectionTestUtils.setField(authService, "principalTtlSeconds", 3600L);
+        ReflectionTestUtils.setField(authService, "principalCacheSize", 10000);
+        ReflectionTestUtils.invokeMethod(authService, "initUserCache");
+        token = tokenCodec.issue(user);
+        // one signature byte flipped; the last character alone may only differ in padding bits
+        int dot = token.lastIndexOf('.');
+        byte[] signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+        signature[signature.length / 2] ^= 1;
+        tampered = token.substring(0, dot + 1) + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    @Benchmark
+    public AuthPrincipal verify() {
+        return tokenCodec.verify(token);
+    }
+
+    @Benchmark
+    public AuthPrincipal verifyTampered() {
+        return tokenCodec.verify(tampered);
+    }
+
+    @Benchmark
+    public User validateToken() {
+        return authService.validateToken(token);
+    }
+}
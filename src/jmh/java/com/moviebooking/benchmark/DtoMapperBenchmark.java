@@ -0,0 +1,86 @@
+package com.moviebooking.benchmark;
+
+import com.moviebooking.controller.BookingController;
+import com.moviebooking.controller.MovieController;
+import com.moviebooking.controller.ScheduleController;
+import com.moviebooking.entity.Booking;
+import com.moviebooking.entity.Movie;
+import com.moviebooking.entity.Schedule;
+import com.moviebooking.entity.Theater;
+import com.moviebooking.entity.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to response mapping used by the list endpoints, per entity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoMapperBenchmark {
+
+    private Schedule schedule;
+    private Booking booking;
+    private Movie movie;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Theater theater = new Theater();
+        theater.setId(7L);
+        theater.setName("Grand Cinema");
+        theater.setCity("Springfield");
+
+        movie = new Movie();
+        movie.setId(11L);
+        movie.setTitle("The Long Weekend");
+        movie.setDescription("A film about a weekend that would not end.");
+        movie.setGenre("Drama");
+        movie.setDirector("A. Director");
+        movie.setDuration(128);
+        movie.setReleaseDate(LocalDate.of(2024, 5, 1));
+        movie.setTheater(theater);
+
+        schedule = new Schedule();
+        schedule.setId(101L);
+        schedule.setMovie(movie);
+        schedule.setTheater(theater);
+        schedule.setShowTime(LocalDateTime.of(2024, 6, 1, 19, 30));
+        schedule.setPrice(new BigDecimal("12.50"));
+        schedule.setTotalSeats(200);
+        schedule.setAvailableSeats(120);
+        schedule.setScreenNumber("3");
+
+        User user = new User();
+        user.setId(42L);
+        booking = new Booking();
+        booking.setId(1001L);
+        booking.setUser(user);
+        booking.setSchedule(schedule);
+        booking.setSeatsCount(4);
+        booking.setSeatNumbers("C4,C5,C6,C7");
+        booking.setTotalAmount(new BigDecimal("50.00"));
+        booking.setStatus(Booking.Status.PAID);
+    }
+
+    @Benchmark
+    public ScheduleController.ScheduleResponse scheduleResponse() {
+        return ScheduleController.ScheduleResponse.from(schedule);
+    }
+
+    @Benchmark
+    public BookingController.BookingResponse bookingResponse() {
+        return BookingController.BookingResponse.from(booking);
+    }
+
+    @Benchmark
+    public MovieController.MovieResponse movieResponse() {
+        return MovieController.MovieResponse.from(movie);
+    }
+}
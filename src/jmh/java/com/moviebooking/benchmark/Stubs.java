@@ -0,0 +1,37 @@
+package com.moviebooking.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Repository stand-ins, so benchmarks measure the code around the database and
+ * not the database.
+ */
+final class Stubs {
+
+    private Stubs() {
+    }
+
+    /**
+     * A repository whose {@code findById} answers from {@code byId} and whose
+     * other finders return nothing.
+     */
+    static <R> R repository(Class<R> type, Function<Object, Object> byId) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+            String name = method.getName();
+            Class<?> result = method.getReturnType();
+            if (name.equals("findById")) return Optional.ofNullable(byId.apply(args[0]));
+            if (name.equals("hashCode")) return System.identityHashCode(p);
+            if (name.equals("equals")) return p == args[0];
+            if (name.equals("toString")) return type.getSimpleName() + " stub";
+            if (result == Optional.class) return Optional.empty();
+            if (Iterable.class.isAssignableFrom(result)) return List.of();
+            if (result == long.class) return 0L;
+            if (result == boolean.class) return false;
+            return null;
+        });
+        return type.cast(proxy);
+    }
+}
@@ -0,0 +1,43 @@
+package com.moviebooking.benchmark;
+
+import com.moviebooking.service.rag.TextChunker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting extracted report text for RAG indexing, at the chunk size and
+ * overlap the indexer uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextChunkerBenchmark {
+
+    @Param({"100000", "1000000", "10000000"})
+    public int chars;
+
+    private final TextChunker chunker = new TextChunker();
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] words = {"booking", "revenue", "theater", "schedule", "seats", "report", "daily", "movie"};
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(chars + 16);
+        while (sb.length() < chars) {
+            sb.append(words[random.nextInt(words.length)]).append(random.nextInt(10) == 0 ? ".\n" : " ");
+        }
+        text = sb.substring(0, chars);
+    }
+
+    @Benchmark
+    public List<String> chunk() {
+        return chunker.chunk(text, 800, 200);
+    }
+}
@@ -1,11 +1,27 @@
 package com.moviebooking.config;
 
+import com.moviebooking.security.AuthPrincipal;
+import com.moviebooking.service.AuthService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
 
 @Configuration
 @EnableWebSecurity
@@ -13,12 +29,14 @@ import org.springframework.security.web.SecurityFilterChain;
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AuthService authService) throws Exception {
         http
             // Enable CORS support so the CorsConfig WebMvcConfigurer is applied
             .cors(cors -> {})
             // Disable CSRF for stateless APIs; enable if you use session forms
             .csrf(csrf -> csrf.disable())
+            // Resolve the bearer token once; controllers and @PreAuthorize read the SecurityContext
+            .addFilterBefore(new TokenAuthenticationFilter(authService), UsernamePasswordAuthenticationFilter.class)
             // Permit preflight requests and allow basic public endpoints
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/**").permitAll() // adjust as needed; controllers can still use @PreAuthorize
@@ -28,4 +46,45 @@ public class SecurityConfig {
 
         return http.build();
     }
+
+    /**
+     * Verifies the bearer token (or, on event stream paths only, a short-lived
+     * {@code ticket} query parameter, since EventSource cannot send headers) and
+     * stores the claims as an authenticated
+     * {@link AuthPrincipal} with a ROLE_ authority. The user behind the token is
+     * checked through AuthService's short-TTL cache.
+     */
+    static class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+        // Subscribe endpoints that take ?ticket=; everything else needs the Authorization header
+        static final Set<String> STREAM_PATHS = Set.of("/api/analytics/stream");
+
+        private final AuthService authService;
+
+        TokenAuthenticationFilter(AuthService authService) {
+            this.authService = authService;
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+            AuthPrincipal principal = null;
+            String header = request.getHeader("Authorization");
+            if (header != null && header.startsWith("Bearer ")) {
+                principal = authService.authenticate(header.substring("Bearer ".length()));
+            } else if ("GET".equals(request.getMethod())
+                    && STREAM_PATHS.contains(request.getRequestURI().substring(request.getContextPath().length()))) {
+                String ticket = request.getParameter("ticket");
+                principal = ticket != null && !ticket.isBlank() ? authService.authenticateStreamTicket(ticket) : null;
+            }
+            if (principal != null) {
+                UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(principal, null,
+                        List.of(new SimpleGrantedAuthority("ROLE_" + principal.getRole().name())));
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(auth);
+                SecurityContextHolder.setContext(context);
+            }
+            chain.doFilter(request, response);
+        }
+    }
 }
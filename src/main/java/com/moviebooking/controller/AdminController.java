@@ -3,6 +3,8 @@ package com.moviebooking.controller;
 import com.moviebooking.entity.User;
 import com.moviebooking.entity.User.UserRole;
 import com.moviebooking.repository.UserRepository;
+import com.moviebooking.security.AuthPrincipal;
+import com.moviebooking.security.CurrentUser;
 import com.moviebooking.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -33,15 +35,18 @@ public class AdminController {
   @Autowired
   private AuthService authService;
 
+  @Autowired
+  private CurrentUser currentUser;
+
   // Helper method to validate Super Admin access
   private boolean validateSuperAdminAccess(String authHeader) {
     if (authHeader == null || !authHeader.startsWith("Bearer ")) {
       return false;
     }
 
-    String token = authHeader.substring(7);
-    User user = authService.validateToken(token);
-    return user != null && user.getRole() == UserRole.SUPER_ADMIN;
+    // The token itself was verified by the security filter
+    AuthPrincipal principal = currentUser.principal();
+    return principal != null && principal.getRole() == UserRole.SUPER_ADMIN;
   }
 
   @GetMapping("/admins")
@@ -153,6 +158,7 @@ public class AdminController {
       Optional<User> adminOptional = userRepository.findById(id);
       if (adminOptional.isPresent() && adminOptional.get().getRole() == UserRole.ADMIN) {
         User admin = adminOptional.get();
+        boolean signOut = admin.isActive() && !adminDetails.isActive();
         admin.setFirstName(adminDetails.getFirstName());
         admin.setLastName(adminDetails.getLastName());
         admin.setEmail(adminDetails.getEmail());
@@ -162,9 +168,11 @@ public class AdminController {
         if (adminDetails.getPassword() != null && !adminDetails.getPassword().trim().isEmpty()) {
           // Store new password in AuthService
           authService.addPasswordToStore(admin.getEmail().toLowerCase(), adminDetails.getPassword());
+          signOut = true;
         }
 
         User updatedAdmin = userRepository.save(admin);
+        if (signOut) authService.revokeTokens(id); else authService.evictUser(id);
         return ResponseEntity.ok(updatedAdmin);
       } else {
         return ResponseEntity.notFound().build();
@@ -197,6 +205,7 @@ public class AdminController {
         User admin = adminOptional.get();
         admin.setActive(statusMap.get("active"));
         User updatedAdmin = userRepository.save(admin);
+        if (!updatedAdmin.isActive()) authService.revokeTokens(id); else authService.evictUser(id);
         return ResponseEntity.ok(updatedAdmin);
       } else {
         return ResponseEntity.notFound().build();
@@ -225,6 +234,7 @@ public class AdminController {
       Optional<User> adminOptional = userRepository.findById(id);
       if (adminOptional.isPresent() && adminOptional.get().getRole() == UserRole.ADMIN) {
         userRepository.delete(adminOptional.get());
+        authService.revokeTokens(id);
         return ResponseEntity.noContent().build();
       } else {
         return ResponseEntity.notFound().build();
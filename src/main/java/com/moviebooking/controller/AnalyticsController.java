@@ -1,14 +1,21 @@
 package com.moviebooking.controller;
 
 import com.moviebooking.entity.Booking;
-import com.moviebooking.entity.Schedule;
+import com.moviebooking.entity.BookingRollup;
 import com.moviebooking.entity.User;
 import com.moviebooking.repository.BookingRepository;
 import com.moviebooking.repository.MovieRepository;
-import com.moviebooking.repository.ScheduleRepository;
 import com.moviebooking.repository.TheaterRepository;
 import com.moviebooking.repository.UserRepository;
+import com.moviebooking.security.AuthPrincipal;
+import com.moviebooking.security.CurrentUser;
 import com.moviebooking.service.AuthService;
+import com.moviebooking.service.analytics.AnalyticsSummarizer;
+import com.moviebooking.service.analytics.BookingRollupService;
+import com.moviebooking.service.analytics.LiveAnalytics;
+import com.moviebooking.service.analytics.UserSketchService;
+import com.moviebooking.service.schedule.ShowtimeIndex;
+import com.moviebooking.service.sse.SseHub;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -16,38 +23,55 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/analytics")
 public class AnalyticsController {
 
     private final BookingRepository bookingRepository;
-    private final ScheduleRepository scheduleRepository;
+    private final ShowtimeIndex showtimeIndex;
     private final TheaterRepository theaterRepository;
     private final MovieRepository movieRepository;
     private final UserRepository userRepository;
+    private final BookingRollupService rollupService;
+    private final AnalyticsSummarizer summarizer;
+    private final LiveAnalytics liveAnalytics;
+    private final SseHub sseHub;
+    private final UserSketchService userSketches;
+    private final CurrentUser currentUser;
     private final AuthService authService;
 
-    // SSE emitters for real-time analytics updates
-    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    // SSE topic for real-time analytics updates, shared with approval events
+    public static final String TOPIC = "analytics";
 
     public AnalyticsController(BookingRepository bookingRepository,
-                               ScheduleRepository scheduleRepository,
+                               ShowtimeIndex showtimeIndex,
                                TheaterRepository theaterRepository,
                                MovieRepository movieRepository,
                                UserRepository userRepository,
+                               BookingRollupService rollupService,
+                               AnalyticsSummarizer summarizer,
+                               LiveAnalytics liveAnalytics,
+                               SseHub sseHub,
+                               UserSketchService userSketches,
+                               CurrentUser currentUser,
                                AuthService authService) {
         this.bookingRepository = bookingRepository;
-        this.scheduleRepository = scheduleRepository;
+        this.showtimeIndex = showtimeIndex;
         this.theaterRepository = theaterRepository;
         this.movieRepository = movieRepository;
         this.userRepository = userRepository;
+        this.rollupService = rollupService;
+        this.summarizer = summarizer;
+        this.liveAnalytics = liveAnalytics;
+        this.sseHub = sseHub;
+        this.userSketches = userSketches;
+        sseHub.onResync(TOPIC, "analytics", () -> update(liveAnalytics.snapshot()));
+        this.currentUser = currentUser;
         this.authService = authService;
     }
 
@@ -57,144 +81,23 @@ public class AnalyticsController {
         return new LocalDateTime[]{start, end};
     }
 
-    private Map<String, Object> summarize(List<Booking> bookings, List<Schedule> schedules) {
-        BigDecimal revenue = bookings.stream()
-                .filter(b -> b.getStatus() == Booking.Status.PAID)
-                .map(Booking::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        long totalBookings = bookings.size();
-        long cancelled = bookings.stream().filter(b -> b.getStatus() == Booking.Status.CANCELLED).count();
-        long completed = bookings.stream().filter(b -> b.getStatus() == Booking.Status.PAID).count();
-
-        // Trends by day
-        Map<LocalDate, Long> bookingsByDay = bookings.stream()
-                .collect(Collectors.groupingBy(b -> b.getCreatedAt().toLocalDate(), TreeMap::new, Collectors.counting()));
-        List<Map<String, Object>> trend = bookingsByDay.entrySet().stream().map(e -> {
-            Map<String, Object> m = new LinkedHashMap<>();
-            m.put("date", e.getKey().toString());
-            m.put("bookings", e.getValue());
-            return m;
-        }).collect(Collectors.toList());
-
-        // Revenue trend by day (PAID only)
-        Map<LocalDate, BigDecimal> revenueByDay = new TreeMap<>();
-        for (Booking b : bookings) {
-            if (b.getStatus() == Booking.Status.PAID) {
-                LocalDate d = b.getCreatedAt().toLocalDate();
-                revenueByDay.put(d, revenueByDay.getOrDefault(d, BigDecimal.ZERO).add(Optional.ofNullable(b.getTotalAmount()).orElse(BigDecimal.ZERO)));
-            }
-        }
-        List<Map<String, Object>> revenueTrend = revenueByDay.entrySet().stream().map(e -> {
-            Map<String, Object> m = new LinkedHashMap<>();
-            m.put("date", e.getKey().toString());
-            m.put("revenue", e.getValue());
-            return m;
-        }).collect(Collectors.toList());
-
-        // Status per day: completed, cancelled, pending
-        Map<LocalDate, Map<String, Long>> statusPerDay = new TreeMap<>();
-        for (Booking b : bookings) {
-            LocalDate d = b.getCreatedAt().toLocalDate();
-            Map<String, Long> counts = statusPerDay.computeIfAbsent(d, k -> new HashMap<>(Map.of(
-                    "completed", 0L,
-                    "cancelled", 0L,
-                    "pending", 0L
-            )));
-            switch (b.getStatus()) {
-                case PAID -> counts.put("completed", counts.get("completed") + 1);
-                case CANCELLED -> counts.put("cancelled", counts.get("cancelled") + 1);
-                default -> counts.put("pending", counts.get("pending") + 1);
-            }
-        }
-        List<Map<String, Object>> statusTrend = statusPerDay.entrySet().stream().map(e -> {
-            Map<String, Object> m = new LinkedHashMap<>();
-            m.put("date", e.getKey().toString());
-            Map<String, Long> c = e.getValue();
-            m.put("completed", c.getOrDefault("completed", 0L));
-            m.put("cancelled", c.getOrDefault("cancelled", 0L));
-            m.put("pending", c.getOrDefault("pending", 0L));
-            return m;
-        }).collect(Collectors.toList());
-
-        // Top movies by revenue
-        Map<String, BigDecimal> movieRevenue = new HashMap<>();
-        for (Booking b : bookings) {
-            try {
-                String title = Optional.ofNullable(b.getSchedule()).map(Schedule::getMovie).map(m -> m.getTitle()).orElse("Unknown");
-                BigDecimal amt = b.getStatus() == Booking.Status.PAID ? b.getTotalAmount() : BigDecimal.ZERO;
-                movieRevenue.put(title, movieRevenue.getOrDefault(title, BigDecimal.ZERO).add(amt));
-            } catch (Exception ignored) {}
-        }
-        List<Map<String, Object>> topMovies = movieRevenue.entrySet().stream()
-                .sorted((a,b) -> b.getValue().compareTo(a.getValue()))
-                .limit(10)
-                .map(e -> {
-                    Map<String, Object> m = new LinkedHashMap<>();
-                    m.put("title", e.getKey());
-                    m.put("revenue", e.getValue());
-                    return m;
-                })
-                .collect(Collectors.toList());
-
-        // Top theaters by revenue
-        Map<String, BigDecimal> theaterRevenue = new HashMap<>();
-        for (Booking b : bookings) {
-            try {
-                String name = Optional.ofNullable(b.getSchedule()).map(Schedule::getTheater).map(t -> t.getName()).orElse("Unknown");
-                BigDecimal amt = b.getStatus() == Booking.Status.PAID ? b.getTotalAmount() : BigDecimal.ZERO;
-                theaterRevenue.put(name, theaterRevenue.getOrDefault(name, BigDecimal.ZERO).add(amt));
-            } catch (Exception ignored) {}
-        }
-        List<Map<String, Object>> topTheaters = theaterRevenue.entrySet().stream()
-                .sorted((a,b) -> b.getValue().compareTo(a.getValue()))
-                .limit(10)
-                .map(e -> {
-                    Map<String, Object> m = new LinkedHashMap<>();
-                    m.put("name", e.getKey());
-                    m.put("revenue", e.getValue());
-                    return m;
-                })
-                .collect(Collectors.toList());
-
-        // Utilization
-        int totalSeats = schedules.stream().mapToInt(Schedule::getTotalSeats).sum();
-        int soldSeats = schedules.stream().mapToInt(s -> Math.max(0, s.getTotalSeats() - s.getAvailableSeats())).sum();
-        double utilization = totalSeats > 0 ? (double) soldSeats / totalSeats : 0.0;
-
-        Map<String, Object> resp = new LinkedHashMap<>();
-        Map<String, Object> kpis = new LinkedHashMap<>();
-        kpis.put("revenue", revenue);
-        kpis.put("bookings", totalBookings);
-        kpis.put("completed", completed);
-        kpis.put("cancelled", cancelled);
-        kpis.put("utilization", utilization);
-        resp.put("kpis", kpis);
-        resp.put("trend", trend);
-        resp.put("revenueTrend", revenueTrend);
-        resp.put("statusTrend", statusTrend);
-        Map<String, Object> tops = new LinkedHashMap<>();
-        tops.put("movies", topMovies);
-        tops.put("theaters", topTheaters);
-        resp.put("tops", tops);
-        return resp;
+    // seats is {total, sold}, as ShowtimeIndex.seats returns it
+    private Map<String, Object> summarize(List<BookingRollup> rows, long[] seats) {
+        return summarizer.summarize(rows, seats[0], seats[1]);
     }
 
     @GetMapping("/super-admin")
     @Transactional(readOnly = true)
-    public ResponseEntity<?> superAdmin(@RequestHeader(value = "Authorization", required = false) String authorization,
-                                        @RequestParam(required = false) String from,
+    public ResponseEntity<?> superAdmin(@RequestParam(required = false) String from,
                                         @RequestParam(required = false) String to) {
-        User u = getUser(authorization);
+        AuthPrincipal u = currentUser.principal();
         if (u == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
-        if (u.getRole() != User.UserRole.SUPER_ADMIN && u.getRole() != User.UserRole.ADMIN) {
+        if (!u.hasRole(User.UserRole.SUPER_ADMIN, User.UserRole.ADMIN)) {
             return ResponseEntity.status(403).body(Map.of("message", "Forbidden"));
         }
         LocalDateTime[] range = parseRange(from, to);
-        List<Booking> bookings = bookingRepository.findByCreatedAtBetween(range[0], range[1]);
-        List<Schedule> schedules = scheduleRepository.findByShowTimeBetweenAndActiveTrue(range[0], range[1]);
-
-        Map<String, Object> resp = summarize(bookings, schedules);
+        List<BookingRollup> rows = rollupService.rows(range[0].toLocalDate(), range[1].toLocalDate(), null);
+        Map<String, Object> resp = summarize(rows, showtimeIndex.seats(range[0], range[1], null));
         // Add system overview
         Map<String, Object> system = new LinkedHashMap<>();
         system.put("movies", movieRepository.count());
@@ -206,100 +109,119 @@ public class AnalyticsController {
 
     @GetMapping("/owner")
     @Transactional(readOnly = true)
-    public ResponseEntity<?> owner(@RequestHeader(value = "Authorization", required = false) String authorization,
-                                   @RequestParam(required = false) Long theaterId,
+    public ResponseEntity<?> owner(@RequestParam(required = false) Long theaterId,
                                    @RequestParam(required = false) String from,
                                    @RequestParam(required = false) String to) {
-        User u = getUser(authorization);
+        AuthPrincipal u = currentUser.principal();
         if (u == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
-        if (u.getRole() != User.UserRole.THEATER_OWNER && u.getRole() != User.UserRole.ADMIN && u.getRole() != User.UserRole.SUPER_ADMIN) {
+        if (!u.hasRole(User.UserRole.THEATER_OWNER, User.UserRole.ADMIN, User.UserRole.SUPER_ADMIN)) {
             return ResponseEntity.status(403).body(Map.of("message", "Forbidden"));
         }
         LocalDateTime[] range = parseRange(from, to);
-        List<Booking> bookings;
-        List<Schedule> schedules;
-        if (theaterId != null) {
-            bookings = bookingRepository.findBySchedule_Theater_IdAndCreatedAtBetween(theaterId, range[0], range[1]);
-            schedules = scheduleRepository.findByTheaterIdAndShowTimeBetweenAndActiveTrue(theaterId, range[0], range[1]);
-        } else {
-            bookings = bookingRepository.findByCreatedAtBetween(range[0], range[1]);
-            schedules = scheduleRepository.findByShowTimeBetweenAndActiveTrue(range[0], range[1]);
-        }
-        return ResponseEntity.ok(summarize(bookings, schedules));
+        List<BookingRollup> rows = rollupService.rows(range[0].toLocalDate(), range[1].toLocalDate(), theaterId);
+        return ResponseEntity.ok(summarize(rows, showtimeIndex.seats(range[0], range[1], theaterId)));
     }
 
     @GetMapping("/customer")
     @Transactional(readOnly = true)
-    public ResponseEntity<?> customer(@RequestHeader(value = "Authorization", required = false) String authorization,
-                                      @RequestParam Long userId,
+    public ResponseEntity<?> customer(@RequestParam Long userId,
                                       @RequestParam(required = false) String from,
                                       @RequestParam(required = false) String to) {
-        User u = getUser(authorization);
+        AuthPrincipal u = currentUser.principal();
         if (u == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
-        if (u.getRole() != User.UserRole.CUSTOMER && u.getRole() != User.UserRole.ADMIN && u.getRole() != User.UserRole.SUPER_ADMIN) {
+        if (!u.hasRole(User.UserRole.CUSTOMER, User.UserRole.ADMIN, User.UserRole.SUPER_ADMIN)) {
             return ResponseEntity.status(403).body(Map.of("message", "Forbidden"));
         }
         LocalDateTime[] range = parseRange(from, to);
         List<Booking> bookings = bookingRepository.findByUserIdAndCreatedAtBetween(userId, range[0], range[1]);
         // schedules not critical for customer utilization; provide empty list
-        return ResponseEntity.ok(summarize(bookings, Collections.emptyList()));
+        // rollups are not keyed by user; one customer's bookings are few enough to fold in memory
+        return ResponseEntity.ok(summarize(rollupService.aggregate(bookings), new long[]{0, 0}));
     }
 
-    // SSE stream endpoint for real-time analytics updates
-    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter stream(@RequestParam(value = "token", required = false) String token) {
-        // Optionally validate token if provided (EventSource cannot set headers)
-        if (token != null && !token.isBlank()) {
-            try { authService.validateToken(token); } catch (Exception ignored) {}
+    // Distinct booking users (dau/wau/mau) up to a day, overall or for one theater
+    @GetMapping("/active-users")
+    public ResponseEntity<?> activeUsers(@RequestParam(required = false) Long theaterId,
+                                         @RequestParam(required = false) String date) {
+        AuthPrincipal u = currentUser.principal();
+        if (u == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
+        if (!u.hasRole(User.UserRole.THEATER_OWNER, User.UserRole.ADMIN, User.UserRole.SUPER_ADMIN)) {
+            return ResponseEntity.status(403).body(Map.of("message", "Forbidden"));
         }
-        SseEmitter emitter = new SseEmitter(0L); // no timeout
-        this.emitters.add(emitter);
-        emitter.onCompletion(() -> this.emitters.remove(emitter));
-        emitter.onTimeout(() -> this.emitters.remove(emitter));
+        LocalDate day;
         try {
-            emitter.send(SseEmitter.event().name("connected").data(Map.of(
-                    "type", "CONNECTED",
-                    "at", LocalDateTime.now().toString()
-            )));
-        } catch (Exception ignored) {}
-        return emitter;
+            day = (date != null && !date.isBlank()) ? LocalDate.parse(date.trim()) : LocalDate.now();
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "date must be YYYY-MM-DD"));
+        }
+        Map<String, Object> resp = new LinkedHashMap<>();
+        resp.put("date", day.toString());
+        resp.putAll(userSketches.activeUsers(day, theaterId));
+        return ResponseEntity.ok(resp);
     }
 
-    private void broadcast(Object payload) {
-        for (SseEmitter emitter : new ArrayList<>(emitters)) {
-            try {
-                emitter.send(SseEmitter.event().name("analytics").data(Map.of(
-                        "type", "ANALYTICS_UPDATE",
-                        "payload", payload,
-                        "at", LocalDateTime.now().toString()
-                )));
-            } catch (Exception e) {
-                emitter.complete();
-                emitters.remove(emitter);
-            }
+    // Recompute booking_rollups from the bookings table, e.g. after a manual data fix
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<?> rebuildRollups() {
+        AuthPrincipal u = currentUser.principal();
+        if (u == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
+        if (!u.hasRole(User.UserRole.SUPER_ADMIN)) {
+            return ResponseEntity.status(403).body(Map.of("message", "Forbidden"));
         }
+        return ResponseEntity.ok(Map.of("rows", rollupService.rebuild()));
     }
 
-    // Periodically compute super admin summary (last 30 days) and broadcast
-    @Scheduled(fixedDelay = 5000)
-    public void scheduledBroadcastSuperAdmin() {
+    // EventSource cannot set headers: exchange the bearer token for a short-lived ticket to pass as ?ticket=
+    @PostMapping("/stream/ticket")
+    public ResponseEntity<?> streamTicket() {
+        AuthPrincipal u = currentUser.principal();
+        if (u == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
+        if (!u.hasRole(User.UserRole.SUPER_ADMIN, User.UserRole.ADMIN)) {
+            return ResponseEntity.status(403).body(Map.of("message", "Forbidden"));
+        }
+        return ResponseEntity.ok(Map.of(
+                "ticket", authService.issueStreamTicket(u),
+                "expiresIn", authService.streamTicketTtlSeconds()
+        ));
+    }
+
+    // SSE stream endpoint for real-time analytics updates
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream() {
+        AuthPrincipal u = currentUser.principal();
+        if (u == null) return ResponseEntity.status(401).build();
+        if (!u.hasRole(User.UserRole.SUPER_ADMIN, User.UserRole.ADMIN)) return ResponseEntity.status(403).build();
+        SseEmitter emitter = sseHub.subscribe(TOPIC);
+        sseHub.sendTo(emitter, TOPIC, "connected", Map.of(
+                "type", "CONNECTED",
+                "at", LocalDateTime.now().toString()
+        ));
+        // later updates only carry the sections that changed
         try {
-            LocalDateTime end = LocalDate.now().atTime(23,59,59);
-            LocalDateTime start = end.minusDays(29).withHour(0).withMinute(0).withSecond(0);
-            List<Booking> bookings = bookingRepository.findByCreatedAtBetween(start, end);
-            List<Schedule> schedules = scheduleRepository.findByShowTimeBetweenAndActiveTrue(start, end);
-            Map<String, Object> payload = summarize(bookings, schedules);
-            Map<String, Object> system = new LinkedHashMap<>();
-            system.put("movies", movieRepository.count());
-            system.put("theaters", theaterRepository.count());
-            system.put("users", userRepository.count());
-            payload.put("system", system);
-            broadcast(payload);
+            sseHub.sendTo(emitter, TOPIC, "analytics", update(liveAnalytics.snapshot()));
         } catch (Exception ignored) {}
+        return ResponseEntity.ok(emitter);
+    }
+
+    private static Map<String, Object> update(Object payload) {
+        return Map.of(
+                "type", "ANALYTICS_UPDATE",
+                "payload", payload,
+                "at", LocalDateTime.now().toString()
+        );
     }
 
-    private User getUser(String authorization) {
-        if (authorization == null || !authorization.startsWith("Bearer ")) return null;
-        return authService.validateToken(authorization.substring(7));
+    // Push the super admin summary (last 30 days) when it changed and someone is listening
+    @Scheduled(fixedDelayString = "${analytics.live.interval-ms:5000}")
+    public void scheduledBroadcastSuperAdmin() {
+        if (sseHub.subscribers(TOPIC) == 0) {
+            liveAnalytics.release();
+            return;
+        }
+        try {
+            Map<String, Object> changes = liveAnalytics.changes();
+            // a subscriber still holding an unsent update gets the merged state via resync
+            if (changes != null) sseHub.publishLatest(TOPIC, "analytics", update(changes), "update");
+        } catch (Exception ignored) {}
     }
 }
@@ -2,8 +2,11 @@ package com.moviebooking.controller;
 
 import com.moviebooking.entity.*;
 import com.moviebooking.repository.*;
-import com.moviebooking.service.AuthService;
-import com.moviebooking.service.AnalyticsEventBus;
+import com.moviebooking.security.CurrentUser;
+import com.moviebooking.service.eventlog.EventLogWriter;
+import com.moviebooking.service.analytics.LiveAnalytics;
+import com.moviebooking.service.schedule.ShowtimeCache;
+import com.moviebooking.service.sse.SseHub;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,35 +20,40 @@ import java.util.Optional;
 public class ApprovalController {
 
     private final ApprovalRequestRepository approvalRepo;
-    private final EventLogRepository eventRepo;
+    private final EventLogWriter eventLogWriter;
     private final TheaterRepository theaterRepo;
     private final MovieRepository movieRepo;
     private final ScheduleRepository scheduleRepo;
-    private final AuthService authService;
-    private final AnalyticsEventBus analyticsBus;
+    private final CurrentUser currentUser;
+    private final SseHub sseHub;
+    private final LiveAnalytics liveAnalytics;
+    private final ShowtimeCache showtimeCache;
 
     public ApprovalController(ApprovalRequestRepository approvalRepo,
-                              EventLogRepository eventRepo,
+                              EventLogWriter eventLogWriter,
                               TheaterRepository theaterRepo,
                               MovieRepository movieRepo,
                               ScheduleRepository scheduleRepo,
-                              AuthService authService,
-                              AnalyticsEventBus analyticsBus) {
+                              CurrentUser currentUser,
+                              SseHub sseHub,
+                              LiveAnalytics liveAnalytics,
+                              ShowtimeCache showtimeCache) {
         this.approvalRepo = approvalRepo;
-        this.eventRepo = eventRepo;
+        this.eventLogWriter = eventLogWriter;
         this.theaterRepo = theaterRepo;
         this.movieRepo = movieRepo;
         this.scheduleRepo = scheduleRepo;
-        this.authService = authService;
-        this.analyticsBus = analyticsBus;
+        this.currentUser = currentUser;
+        this.sseHub = sseHub;
+        this.liveAnalytics = liveAnalytics;
+        this.showtimeCache = showtimeCache;
     }
 
     @PostMapping("/{type}/{id}/approve")
-    public ResponseEntity<?> approve(@RequestHeader(name = "Authorization", required = false) String authorization,
-                                     @PathVariable String type,
+    public ResponseEntity<?> approve(@PathVariable String type,
                                      @PathVariable Long id,
                                      @RequestBody(required = false) Map<String, String> body) {
-        User reviewer = getUser(authorization);
+        User reviewer = currentUser.user();
         if (reviewer == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
         String notes = body != null ? body.getOrDefault("notes", null) : null;
 
@@ -63,7 +71,8 @@ public class ApprovalController {
                 theaterRepo.save(t);
                 closeApproval(ApprovalRequest.EntityType.THEATER, id, reviewer, true, notes);
                 log(EventLog.EntityType.THEATER, id, reviewer, "APPROVE", from, t.getStatus(), notes);
-                analyticsBus.broadcast("APPROVE", Map.of(
+                liveAnalytics.systemChanged();
+                sseHub.publish(AnalyticsController.TOPIC, "APPROVE", Map.of(
                         "type", "THEATER",
                         "id", id,
                         "reviewer", reviewer.getId(),
@@ -83,7 +92,8 @@ public class ApprovalController {
                 movieRepo.save(m);
                 closeApproval(ApprovalRequest.EntityType.MOVIE, id, reviewer, true, notes);
                 log(EventLog.EntityType.MOVIE, id, reviewer, "APPROVE", from, m.getStatus(), notes);
-                analyticsBus.broadcast("APPROVE", Map.of(
+                liveAnalytics.systemChanged();
+                sseHub.publish(AnalyticsController.TOPIC, "APPROVE", Map.of(
                         "type", "MOVIE",
                         "id", id,
                         "reviewer", reviewer.getId(),
@@ -102,9 +112,11 @@ public class ApprovalController {
                 s.setApprovedAt(LocalDateTime.now());
                 s.setApprovalNotes(notes);
                 scheduleRepo.save(s);
+                showtimeCache.evict(s);
                 closeApproval(ApprovalRequest.EntityType.SHOW, id, reviewer, true, notes);
                 log(EventLog.EntityType.SHOW, id, reviewer, "APPROVE", from, s.getStatus(), notes);
-                analyticsBus.broadcast("APPROVE", Map.of(
+                liveAnalytics.systemChanged();
+                sseHub.publish(AnalyticsController.TOPIC, "APPROVE", Map.of(
                         "type", "SCHEDULE",
                         "id", id,
                         "reviewer", reviewer.getId(),
@@ -119,11 +131,10 @@ public class ApprovalController {
     }
 
     @PostMapping("/{type}/{id}/deny")
-    public ResponseEntity<?> deny(@RequestHeader(name = "Authorization", required = false) String authorization,
-                                  @PathVariable String type,
+    public ResponseEntity<?> deny(@PathVariable String type,
                                   @PathVariable Long id,
                                   @RequestBody(required = false) Map<String, String> body) {
-        User reviewer = getUser(authorization);
+        User reviewer = currentUser.user();
         if (reviewer == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
         String notes = body != null ? body.getOrDefault("notes", null) : null;
 
@@ -138,7 +149,8 @@ public class ApprovalController {
                 theaterRepo.save(t);
                 closeApproval(ApprovalRequest.EntityType.THEATER, id, reviewer, false, notes);
                 log(EventLog.EntityType.THEATER, id, reviewer, "REJECT", from, t.getStatus(), notes);
-                analyticsBus.broadcast("REJECT", Map.of(
+                liveAnalytics.systemChanged();
+                sseHub.publish(AnalyticsController.TOPIC, "REJECT", Map.of(
                         "type", "THEATER",
                         "id", id,
                         "reviewer", reviewer.getId(),
@@ -156,7 +168,8 @@ public class ApprovalController {
                 movieRepo.save(m);
                 closeApproval(ApprovalRequest.EntityType.MOVIE, id, reviewer, false, notes);
                 log(EventLog.EntityType.MOVIE, id, reviewer, "REJECT", from, m.getStatus(), notes);
-                analyticsBus.broadcast("REJECT", Map.of(
+                liveAnalytics.systemChanged();
+                sseHub.publish(AnalyticsController.TOPIC, "REJECT", Map.of(
                         "type", "MOVIE",
                         "id", id,
                         "reviewer", reviewer.getId(),
@@ -172,9 +185,11 @@ public class ApprovalController {
                 s.setStatus(Schedule.Status.DRAFT);
                 s.setApprovalNotes(notes);
                 scheduleRepo.save(s);
+                showtimeCache.evict(s);
                 closeApproval(ApprovalRequest.EntityType.SHOW, id, reviewer, false, notes);
                 log(EventLog.EntityType.SHOW, id, reviewer, "REJECT", from, s.getStatus(), notes);
-                analyticsBus.broadcast("REJECT", Map.of(
+                liveAnalytics.systemChanged();
+                sseHub.publish(AnalyticsController.TOPIC, "REJECT", Map.of(
                         "type", "SCHEDULE",
                         "id", id,
                         "reviewer", reviewer.getId(),
@@ -209,12 +224,6 @@ public class ApprovalController {
         log.setFromStatus(from != null ? from.name() : null);
         log.setToStatus(to != null ? to.name() : null);
         log.setNotes(notes);
-        eventRepo.save(log);
-    }
-
-    private User getUser(String authorization) {
-        if (authorization == null || !authorization.startsWith("Bearer ")) return null;
-        String token = authorization.substring(7);
-        return authService.validateToken(token);
+        eventLogWriter.append(log);
     }
 }
@@ -2,22 +2,21 @@ package com.moviebooking.controller;
 
 import com.moviebooking.entity.Booking;
 import com.moviebooking.entity.Schedule;
-import com.moviebooking.entity.Theater;
 import com.moviebooking.entity.User;
 import com.moviebooking.repository.BookingRepository;
-import com.moviebooking.repository.ScheduleRepository;
-import com.moviebooking.service.AuthService;
-import com.moviebooking.service.EmailService;
-import com.moviebooking.service.NotificationService;
+import com.moviebooking.security.AuthPrincipal;
+import com.moviebooking.security.CurrentUser;
+import com.moviebooking.service.BookingService;
+import com.moviebooking.service.IdempotencyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.math.BigDecimal;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/bookings")
@@ -25,160 +24,192 @@ import java.util.Optional;
 public class BookingController {
 
     private final BookingRepository bookingRepository;
-    private final ScheduleRepository scheduleRepository;
-    private final AuthService authService;
-    private final NotificationService notificationService;
-    private final EmailService emailService;
+    private final BookingService bookingService;
+    private final CurrentUser currentUser;
+    private final IdempotencyService idempotencyService;
+    private final Paging paging;
+
+    @Value("${booking.batch.max-lines:200}")
+    private int maxBatchLines;
 
     public BookingController(BookingRepository bookingRepository,
-                             ScheduleRepository scheduleRepository,
-                             AuthService authService,
-                             NotificationService notificationService,
-                             EmailService emailService) {
+                             BookingService bookingService,
+                             CurrentUser currentUser,
+                             IdempotencyService idempotencyService,
+                             Paging paging) {
         this.bookingRepository = bookingRepository;
-        this.scheduleRepository = scheduleRepository;
-        this.authService = authService;
-        this.notificationService = notificationService;
-        this.emailService = emailService;
+        this.bookingService = bookingService;
+        this.currentUser = currentUser;
+        this.idempotencyService = idempotencyService;
+        this.paging = paging;
     }
 
     @GetMapping("/my")
-    public ResponseEntity<List<BookingResponse>> myBookings(@RequestHeader(name = "Authorization", required = false) String authorization) {
-        User user = getUserOrUnauthorized(authorization);
+    public ResponseEntity<?> myBookings(@RequestParam(required = false) String cursor,
+                                        @RequestParam(required = false) Integer limit,
+                                        @RequestParam(required = false) String fields) {
+        AuthPrincipal user = currentUser.principal();
         if (user == null) return ResponseEntity.status(401).build();
-        List<BookingResponse> result = bookingRepository.findByUserId(user.getId())
+        int size = paging.limit(limit, cursor);
+        Paging.Cursor before = Paging.cursor(cursor);
+        List<BookingResponse> result = bookingRepository.findPageForUser(user.getId(), before.timeBefore(),
+                        before.idBefore(), PageRequest.of(0, size + 1))
                 .stream()
                 .map(BookingResponse::from)
                 .toList();
-        return ResponseEntity.ok(result);
+        return paging.page(result, size, r -> r.createdAt, r -> r.id, fields);
     }
 
+    // A retried request with the same Idempotency-Key gets the original response back
     @PostMapping
-    @Transactional
-    public ResponseEntity<?> create(@RequestHeader(name = "Authorization", required = false) String authorization,
+    public ResponseEntity<?> create(@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
                                     @RequestBody Map<String, Object> body) {
-        User user = getUserOrUnauthorized(authorization);
+        return reserve(idempotencyKey, body, false);
+    }
+
+    // Holds seats for a few minutes; confirm before the hold expires to book them
+    @PostMapping("/hold")
+    public ResponseEntity<?> hold(@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                                  @RequestBody Map<String, Object> body) {
+        return reserve(idempotencyKey, body, true);
+    }
+
+    // Group and corporate orders: {"lines": [{"scheduleId": 1, "seatsCount": 20}, ...]}, all or nothing
+    @PostMapping("/batch")
+    public ResponseEntity<?> createBatch(@RequestBody Map<String, Object> body) {
+        User user = currentUser.user();
+        if (user == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
+
+        if (!(body.get("lines") instanceof List<?> rawLines) || rawLines.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "lines are required"));
+        }
+        if (rawLines.size() > maxBatchLines) {
+            return ResponseEntity.badRequest().body(Map.of("message", "At most " + maxBatchLines + " lines per batch"));
+        }
+        List<BookingService.BatchLine> lines = new ArrayList<>(rawLines.size());
+        for (Object raw : rawLines) {
+            if (!(raw instanceof Map<?, ?> line) || line.get("scheduleId") == null) {
+                return ResponseEntity.badRequest().body(Map.of("message", "Each line needs scheduleId and seatsCount"));
+            }
+            List<String> seats = seatLabels(line.get("seats"));
+            Object seatsCountObj = line.get("seatsCount");
+            if (seatsCountObj == null && seats.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("message", "Each line needs scheduleId and seatsCount"));
+            }
+            int seatsCount = seats.isEmpty() ? Integer.parseInt(seatsCountObj.toString()) : seats.size();
+            if (seatsCount <= 0) {
+                return ResponseEntity.badRequest().body(Map.of("message", "seatsCount must be > 0"));
+            }
+            lines.add(new BookingService.BatchLine(Long.valueOf(line.get("scheduleId").toString()), seatsCount, seats));
+        }
+
+        try {
+            List<BookingResponse> result = bookingService.createBatch(user, lines).stream()
+                    .map(BookingResponse::from)
+                    .toList();
+            return ResponseEntity.ok(result);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
+    }
+
+    @PostMapping("/{id}/confirm")
+    public ResponseEntity<?> confirm(@PathVariable Long id) {
+        User user = currentUser.user();
         if (user == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
+        try {
+            return ResponseEntity.ok(BookingResponse.from(bookingService.confirm(user, id)));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+        }
+    }
+
+    private ResponseEntity<?> reserve(String idempotencyKey, Map<String, Object> body,
+                                      boolean hold) {
+        User user = currentUser.user();
+        if (user == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
+
+        String key = idempotencyKey != null && !idempotencyKey.isBlank() ? idempotencyKey.trim() : null;
+        if (key != null && key.length() > 100) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Idempotency-Key is too long"));
+        }
 
         Object scheduleIdObj = body.get("scheduleId");
         Object seatsCountObj = body.get("seatsCount");
-        if (scheduleIdObj == null || seatsCountObj == null) {
+        List<String> seats = seatLabels(body.get("seats"));
+        if (scheduleIdObj == null || (seatsCountObj == null && seats.isEmpty())) {
             return ResponseEntity.badRequest().body(Map.of("message", "scheduleId and seatsCount are required"));
         }
         Long scheduleId = Long.valueOf(scheduleIdObj.toString());
-        int seatsCount = Integer.parseInt(seatsCountObj.toString());
+        int seatsCount = seats.isEmpty() ? Integer.parseInt(seatsCountObj.toString()) : seats.size();
         if (seatsCount <= 0) {
             return ResponseEntity.badRequest().body(Map.of("message", "seatsCount must be > 0"));
         }
 
-        Optional<Schedule> scheduleOpt = scheduleRepository.findById(scheduleId);
-        if (scheduleOpt.isEmpty()) {
-            return ResponseEntity.status(404).body(Map.of("message", "Schedule not found"));
-        }
-        Schedule schedule = scheduleOpt.get();
-        // Simple rules: schedule must be active and have enough seats
-        if (!schedule.isActive()) {
-            return ResponseEntity.badRequest().body(Map.of("message", "Schedule inactive"));
-        }
-        if (schedule.getAvailableSeats() < seatsCount) {
-            return ResponseEntity.badRequest().body(Map.of("message", "Not enough seats available"));
+        String fingerprint = null;
+        if (key != null) {
+            fingerprint = BookingService.fingerprint(hold, scheduleId, seatsCount, seats);
+            try {
+                Object cached = idempotencyService.cachedResponse(user.getId(), key, fingerprint);
+                if (cached != null) return ResponseEntity.ok(cached);
+            } catch (ResponseStatusException e) {
+                return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
+            }
         }
 
-        schedule.setAvailableSeats(schedule.getAvailableSeats() - seatsCount);
-        scheduleRepository.save(schedule);
-
-        Booking booking = new Booking();
-        booking.setUser(user);
-        booking.setSchedule(schedule);
-        booking.setSeatsCount(seatsCount);
-        BigDecimal total = schedule.getPrice().multiply(BigDecimal.valueOf(seatsCount));
-        booking.setTotalAmount(total);
-        booking.setStatus(Booking.Status.CREATED);
-        Booking saved = bookingRepository.save(booking);
-
-        // Build common context
-        String movieTitle = schedule.getMovie() != null ? schedule.getMovie().getTitle() : "Movie";
-        String theaterName = schedule.getTheater() != null ? schedule.getTheater().getName() : "Theater";
-        String subject = "Booking Confirmed: " + movieTitle;
-        String emailBody = "Hi " + (user.getFirstName() != null ? user.getFirstName() : "") + ",\n\n" +
-                "Your booking is confirmed.\n" +
-                "Movie: " + movieTitle + "\n" +
-                "Theater: " + theaterName + "\n" +
-                "Show Time: " + schedule.getShowTime() + "\n" +
-                "Seats: " + seatsCount + "\n" +
-                "Total: " + total + "\n\n" +
-                "Thank you for choosing MovieHub!";
-
-        Map<String, Object> data = new HashMap<>();
-        data.put("entityType", "BOOKING");
-        data.put("entityId", saved.getId());
-        data.put("scheduleId", schedule.getId());
-        data.put("movieId", schedule.getMovie() != null ? schedule.getMovie().getId() : null);
-
-        // Create notification for customer
-        notificationService.create(user,
-                "Booking confirmed",
-                "You booked " + seatsCount + " seats for " + movieTitle + 
-                        " at " + schedule.getShowTime() + ".",
-                com.moviebooking.entity.Notification.Type.BOOKING,
-                data);
-        if (user.getEmail() != null && !user.getEmail().isBlank()) {
-            emailService.sendEmail(user.getEmail(), subject, emailBody);
+        Integer minutes = null;
+        if (hold && body.get("minutes") != null) {
+            try {
+                minutes = Integer.valueOf(body.get("minutes").toString().trim());
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", "minutes must be a whole number"));
+            }
+            if (minutes <= 0) {
+                return ResponseEntity.badRequest().body(Map.of("message", "minutes must be > 0"));
+            }
         }
 
-        // Notify theater owner if present
-        Theater theater = schedule.getTheater();
-        if (theater != null && theater.getOwner() != null) {
-            User owner = theater.getOwner();
-            notificationService.create(owner,
-                    "New booking",
-                    user.getFirstName() + " booked " + seatsCount + " seats for " + movieTitle + 
-                            " at " + schedule.getShowTime() + ".",
-                    com.moviebooking.entity.Notification.Type.BOOKING,
-                    data);
-            if (owner.getEmail() != null && !owner.getEmail().isBlank()) {
-                String ownerBody = "Hello " + (owner.getFirstName() != null ? owner.getFirstName() : "") + ",\n\n" +
-                        "A new booking has been made.\n" +
-                        "Movie: " + movieTitle + "\n" +
-                        "Show Time: " + schedule.getShowTime() + "\n" +
-                        "Seats: " + seatsCount + "\n\n" +
-                        "Regards, MovieHub";
-                emailService.sendEmail(owner.getEmail(), "New Booking - " + movieTitle, ownerBody);
+        Booking saved;
+        try {
+            if (hold) {
+                saved = bookingService.hold(user, scheduleId, seatsCount, seats, minutes, key);
+            } else {
+                saved = bookingService.create(user, scheduleId, seatsCount, seats, key);
             }
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
         }
-
-        return ResponseEntity.ok(BookingResponse.from(saved));
+        BookingResponse response = BookingResponse.from(saved);
+        if (key != null) idempotencyService.cacheResponse(user.getId(), key, fingerprint, response);
+        return ResponseEntity.ok(response);
     }
 
     @PatchMapping("/{id}/cancel")
-    @Transactional
-    public ResponseEntity<?> cancel(@RequestHeader(name = "Authorization", required = false) String authorization,
-                                    @PathVariable Long id) {
-        User user = getUserOrUnauthorized(authorization);
+    public ResponseEntity<?> cancel(@PathVariable Long id) {
+        User user = currentUser.user();
         if (user == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
-        Optional<Booking> bookingOpt = bookingRepository.findById(id);
-        if (bookingOpt.isEmpty()) return ResponseEntity.status(404).body(Map.of("message", "Booking not found"));
-        Booking booking = bookingOpt.get();
-        if (!booking.getUser().getId().equals(user.getId())) {
-            return ResponseEntity.status(403).body(Map.of("message", "Forbidden"));
+        try {
+            return ResponseEntity.ok(BookingResponse.from(bookingService.cancel(user, id)));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("message", e.getReason()));
         }
-        if (booking.getStatus() == Booking.Status.CANCELLED) {
-            return ResponseEntity.ok(BookingResponse.from(booking));
+    }
+
+    // Booking conflict and retry counters
+    @GetMapping("/metrics")
+    public ResponseEntity<?> metrics() {
+        AuthPrincipal user = currentUser.principal();
+        if (user == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
+        if (!user.hasRole(User.UserRole.SUPER_ADMIN, User.UserRole.ADMIN)) {
+            return ResponseEntity.status(403).body(Map.of("message", "Forbidden"));
         }
-        // restore seats
-        Schedule schedule = booking.getSchedule();
-        schedule.setAvailableSeats(schedule.getAvailableSeats() + booking.getSeatsCount());
-        scheduleRepository.save(schedule);
-
-        booking.setStatus(Booking.Status.CANCELLED);
-        Booking saved = bookingRepository.save(booking);
-        return ResponseEntity.ok(BookingResponse.from(saved));
+        return ResponseEntity.ok(bookingService.stats());
     }
 
-    private User getUserOrUnauthorized(String authorization) {
-        if (authorization == null || !authorization.startsWith("Bearer ")) return null;
-        String token = authorization.substring("Bearer ".length());
-        return authService.validateToken(token);
+    // Optional explicit seat selection, e.g. "seats": ["C4", "C5"]
+    private List<String> seatLabels(Object seatsObj) {
+        if (!(seatsObj instanceof List<?> list)) return List.of();
+        return list.stream().filter(o -> o != null).map(Object::toString).toList();
     }
 
     // Lightweight DTOs to avoid lazy-loading serialization issues
@@ -187,6 +218,8 @@ public class BookingController {
         public String status;
         public java.math.BigDecimal totalAmount;
         public Integer seatsCount;
+        public List<String> seats;
+        public java.time.LocalDateTime holdExpiresAt;
         public java.time.LocalDateTime createdAt;
         public ScheduleSummary schedule;
 
@@ -196,6 +229,8 @@ public class BookingController {
             r.status = b.getStatus() != null ? b.getStatus().name() : null;
             r.totalAmount = b.getTotalAmount();
             r.seatsCount = b.getSeatsCount();
+            r.seats = BookingService.seatList(b);
+            r.holdExpiresAt = b.getHoldExpiresAt();
             r.createdAt = b.getCreatedAt();
             if (b.getSchedule() != null) {
                 r.schedule = ScheduleSummary.from(b.getSchedule());
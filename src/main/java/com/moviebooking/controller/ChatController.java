@@ -1,7 +1,7 @@
 package com.moviebooking.controller;
 
 import com.moviebooking.entity.User;
-import com.moviebooking.service.AuthService;
+import com.moviebooking.security.CurrentUser;
 import com.moviebooking.service.ChatService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,21 +15,16 @@ import java.util.Map;
 public class ChatController {
 
     private final ChatService chatService;
-    private final AuthService authService;
+    private final CurrentUser currentUser;
 
-    public ChatController(ChatService chatService, AuthService authService) {
+    public ChatController(ChatService chatService, CurrentUser currentUser) {
         this.chatService = chatService;
-        this.authService = authService;
+        this.currentUser = currentUser;
     }
 
     @PostMapping("/ask")
-    public Mono<ResponseEntity<Map<String, Object>>> ask(@RequestHeader(name = "Authorization", required = false) String authorization,
-                                                         @RequestBody Map<String, String> body) {
-        if (authorization == null || !authorization.startsWith("Bearer ")) {
-            return Mono.just(ResponseEntity.status(401).body(Map.of("message", "Missing or invalid token")));
-        }
-        String token = authorization.substring("Bearer ".length());
-        User user = authService.validateToken(token);
+    public Mono<ResponseEntity<Map<String, Object>>> ask(@RequestBody Map<String, String> body) {
+        User user = currentUser.user();
         if (user == null) {
             return Mono.just(ResponseEntity.status(401).body(Map.of("message", "Unauthorized")));
         }
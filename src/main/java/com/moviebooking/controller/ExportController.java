@@ -0,0 +1,74 @@
+package com.moviebooking.controller;
+
+import com.moviebooking.entity.Booking;
+import com.moviebooking.service.export.BookingExportService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/analytics/export")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174", "http://localhost:5175"})
+public class ExportController {
+
+    private final BookingExportService exportService;
+
+    public ExportController(BookingExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    /**
+     * Bookings created between {@code from} and {@code to} inclusive (default the
+     * last 30 days) as CSV or NDJSON, streamed while the rows are read.
+     */
+    @GetMapping("/bookings")
+    @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN')")
+    public ResponseEntity<?> bookings(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long theaterId,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        LocalDate last = (to != null) ? to : LocalDate.now();
+        LocalDate first = (from != null) ? from : last.minusDays(29);
+        if (first.isAfter(last)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "from must not be after to"));
+        }
+        BookingExportService.Format fmt;
+        String bookingStatus = null;
+        try {
+            fmt = BookingExportService.Format.valueOf(format.toUpperCase());
+            if (status != null && !status.isBlank()) bookingStatus = Booking.Status.valueOf(status.toUpperCase()).name();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Unknown format or status"));
+        }
+
+        LocalDateTime start = first.atStartOfDay();
+        LocalDateTime end = last.plusDays(1).atStartOfDay();
+        String filterStatus = bookingStatus;
+        StreamingResponseBody body = out -> exportService.write(out, start, end, theaterId, filterStatus, fmt, gzip);
+
+        String filename = "bookings-" + first + "-to-" + last + (fmt == BookingExportService.Format.NDJSON ? ".ndjson" : ".csv");
+        MediaType type = fmt == BookingExportService.Format.NDJSON
+                ? MediaType.parseMediaType("application/x-ndjson")
+                : MediaType.parseMediaType("text/csv;charset=UTF-8");
+        if (gzip) {
+            filename += ".gz";
+            type = MediaType.parseMediaType("application/gzip");
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
+                .contentType(type)
+                .body(body);
+    }
+}
@@ -4,13 +4,15 @@ import com.moviebooking.entity.Movie;
 import com.moviebooking.entity.User;
 import com.moviebooking.entity.Theater;
 import com.moviebooking.repository.MovieRepository;
-import com.moviebooking.repository.UserRepository;
 import com.moviebooking.repository.TheaterRepository;
+import com.moviebooking.security.AuthPrincipal;
+import com.moviebooking.security.CurrentUser;
+import com.moviebooking.service.schedule.ShowtimeCache;
+import com.moviebooking.service.schedule.ShowtimeIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -33,22 +35,37 @@ public class MovieController {
     private MovieRepository movieRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private CurrentUser currentUser;
 
     @Autowired
     private TheaterRepository theaterRepository;
 
+    @Autowired
+    private Paging paging;
+
+    @Autowired
+    private ShowtimeCache showtimeCache;
+
+    @Autowired
+    private ShowtimeIndex showtimeIndex;
+
     @GetMapping
     @Operation(summary = "Get all movies", description = "Retrieve a list of all movies")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved movies", content = @Content(mediaType = "application/json")),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public List<MovieResponse> getAllMovies() {
-        return movieRepository.findByActiveTrue()
+    public ResponseEntity<?> getAllMovies(
+            @Parameter(description = "Cursor from the X-Next-Cursor header of the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size, capped by api.page.max-limit") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Comma separated fields to return") @RequestParam(required = false) String fields) {
+        int size = paging.limit(limit, cursor);
+        Paging.Cursor after = Paging.cursor(cursor);
+        List<MovieResponse> rows = movieRepository.findActivePage(after.timeAfter(), after.idAfter(), PageRequest.of(0, size + 1))
                 .stream()
                 .map(MovieResponse::from)
                 .toList();
+        return paging.page(rows, size, r -> r.createdAt, r -> r.id, fields);
     }
 
     @GetMapping("/search")
@@ -115,24 +132,17 @@ public class MovieController {
     })
     public Movie createMovie(
             @Parameter(description = "Movie object", required = true) @RequestBody Movie movie) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-
-        // Only attempt to resolve the authenticated user if authentication is present and not anonymous
-        if (auth != null && auth.isAuthenticated()) {
-            String name = auth.getName();
-            if (name != null && !"anonymousUser".equalsIgnoreCase(name)) {
-                User user = userRepository.findByEmail(name)
-                        .orElseThrow(() -> new RuntimeException("User not found"));
-
-                // If the creator is a theater owner, automatically associate their theater
-                if (user.getRole() == User.UserRole.THEATER_OWNER) {
-                    List<Theater> theaters = theaterRepository.findByOwnerId(user.getId());
-                    if (theaters.isEmpty()) {
-                        throw new RuntimeException("Theater not found for user");
-                    }
-                    Theater theater = theaters.get(0);
-                    movie.setTheater(theater);
+        // Only attempt to resolve the authenticated user if authentication is present
+        AuthPrincipal user = currentUser.principal();
+        if (user != null) {
+            // If the creator is a theater owner, automatically associate their theater
+            if (user.getRole() == User.UserRole.THEATER_OWNER) {
+                List<Theater> theaters = theaterRepository.findByOwnerId(user.getId());
+                if (theaters.isEmpty()) {
+                    throw new RuntimeException("Theater not found for user");
                 }
+                Theater theater = theaters.get(0);
+                movie.setTheater(theater);
             }
         }
 
@@ -163,7 +173,11 @@ public class MovieController {
             updatedMovie.setPosterUrl(movieDetails.getPosterUrl());
             updatedMovie.setActive(movieDetails.isActive());
             updatedMovie.setTheater(movieDetails.getTheater());
-            return ResponseEntity.ok(movieRepository.save(updatedMovie));
+            Movie saved = movieRepository.save(updatedMovie);
+            // showtime lists and the index carry the title
+            showtimeCache.clear();
+            showtimeIndex.reloadAll();
+            return ResponseEntity.ok(saved);
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -181,6 +195,8 @@ public class MovieController {
         Optional<Movie> movie = movieRepository.findById(id);
         if (movie.isPresent()) {
             movieRepository.delete(movie.get());
+            showtimeCache.clear();
+            showtimeIndex.reloadAll();
             return ResponseEntity.noContent().build();
         } else {
             return ResponseEntity.notFound().build();
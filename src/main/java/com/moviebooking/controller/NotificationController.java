@@ -1,8 +1,8 @@
 package com.moviebooking.controller;
 
 import com.moviebooking.entity.Notification;
-import com.moviebooking.entity.User;
-import com.moviebooking.service.AuthService;
+import com.moviebooking.security.AuthPrincipal;
+import com.moviebooking.security.CurrentUser;
 import com.moviebooking.service.NotificationService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,50 +16,50 @@ import java.util.Map;
 public class NotificationController {
 
     private final NotificationService notificationService;
-    private final AuthService authService;
+    private final CurrentUser currentUser;
+    private final Paging paging;
 
-    public NotificationController(NotificationService notificationService, AuthService authService) {
+    public NotificationController(NotificationService notificationService, CurrentUser currentUser, Paging paging) {
         this.notificationService = notificationService;
-        this.authService = authService;
+        this.currentUser = currentUser;
+        this.paging = paging;
     }
 
     @GetMapping("/my")
-    public ResponseEntity<?> myNotifications(@RequestHeader(name = "Authorization", required = false) String authorization,
-                                             @RequestParam(name = "unreadOnly", defaultValue = "false") boolean unreadOnly) {
-        User user = getUserOrUnauthorized(authorization);
+    public ResponseEntity<?> myNotifications(@RequestParam(name = "unreadOnly", defaultValue = "false") boolean unreadOnly,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(required = false) Integer limit,
+                                             @RequestParam(required = false) String fields) {
+        AuthPrincipal user = currentUser.principal();
         if (user == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
-        List<Notification> list = notificationService.getForUser(user.getId(), unreadOnly);
-        return ResponseEntity.ok(list);
+        int size = paging.limit(limit, cursor);
+        Paging.Cursor before = Paging.cursor(cursor);
+        List<Notification> list = notificationService.getPageForUser(user.getId(), unreadOnly,
+                before.instantBefore(), before.idBefore(), size + 1);
+        return paging.page(list, size, Notification::getCreatedAt, Notification::getId, fields);
     }
 
     @GetMapping("/my/count")
-    public ResponseEntity<?> unreadCount(@RequestHeader(name = "Authorization", required = false) String authorization) {
-        User user = getUserOrUnauthorized(authorization);
+    public ResponseEntity<?> unreadCount() {
+        AuthPrincipal user = currentUser.principal();
         if (user == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
         long count = notificationService.countUnread(user.getId());
         return ResponseEntity.ok(Map.of("count", count));
     }
 
     @PatchMapping("/{id}/read")
-    public ResponseEntity<?> markRead(@RequestHeader(name = "Authorization", required = false) String authorization,
-                                      @PathVariable Long id) {
-        User user = getUserOrUnauthorized(authorization);
+    public ResponseEntity<?> markRead(@PathVariable Long id) {
+        AuthPrincipal user = currentUser.principal();
         if (user == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
         notificationService.markRead(id, user.getId());
         return ResponseEntity.ok(Map.of("status", "ok"));
     }
 
     @PatchMapping("/read-all")
-    public ResponseEntity<?> markAllRead(@RequestHeader(name = "Authorization", required = false) String authorization) {
-        User user = getUserOrUnauthorized(authorization);
+    public ResponseEntity<?> markAllRead() {
+        AuthPrincipal user = currentUser.principal();
         if (user == null) return ResponseEntity.status(401).body(Map.of("message", "Unauthorized"));
         notificationService.markAllRead(user.getId());
         return ResponseEntity.ok(Map.of("status", "ok"));
     }
-
-    private User getUserOrUnauthorized(String authorization) {
-        if (authorization == null || !authorization.startsWith("Bearer ")) return null;
-        String token = authorization.substring("Bearer ".length());
-        return authService.validateToken(token);
-    }
 }
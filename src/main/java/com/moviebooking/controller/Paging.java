@@ -0,0 +1,162 @@
+package com.moviebooking.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination for list endpoints. A page is ordered by (sort key, id); the
+ * opaque cursor holds the last row's pair and the next page starts strictly
+ * after it, so every page is one index range scan however deep the client is.
+ * The body stays a plain JSON array; the cursor of the next page, if there is
+ * one, is sent in the {@value #NEXT_CURSOR} header. A request with neither a
+ * limit nor a cursor gets the whole list, as before paging existed.
+ * {@code fields=a,b} trims each element to those properties.
+ */
+@Component
+public class Paging {
+
+    public static final String NEXT_CURSOR = "X-Next-Cursor";
+
+    // Page size of an unpaged request; one below the maximum so that the extra "has more" row still fits
+    private static final int UNBOUNDED = Integer.MAX_VALUE - 1;
+
+    // Bounds for "before any row" and "after every row" that MySQL DATETIME can hold
+    private static final LocalDateTime MIN_TIME = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${api.page.default-limit:500}")
+    private int defaultLimit;
+
+    @Value("${api.page.max-limit:1000}")
+    private int maxLimit;
+
+    public Paging(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Page size for a requested limit: the default when only a cursor is given,
+     * capped at the maximum, and the whole list when neither is given.
+     */
+    public int limit(Integer requested, String cursor) {
+        if (requested == null) {
+            if (cursor == null || cursor.isBlank()) return UNBOUNDED;
+            return Math.min(defaultLimit, maxLimit);
+        }
+        if (requested < 1) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+        return Math.min(requested, maxLimit);
+    }
+
+    /**
+     * The cursor sent back by a client, or the start of the list when null.
+     */
+    public static Cursor cursor(String value) {
+        if (value == null || value.isBlank()) return new Cursor(null, null);
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int bar = decoded.lastIndexOf('|');
+            return new Cursor(decoded.substring(0, bar), Long.parseLong(decoded.substring(bar + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    /**
+     * Response for rows fetched with {@code limit + 1}: the extra row only tells
+     * that another page exists.
+     */
+    public <T> ResponseEntity<?> page(List<T> fetched, int limit, Function<T, Object> key, Function<T, Long> id,
+                                      String fields) {
+        List<T> rows = fetched.size() > limit ? fetched.subList(0, limit) : fetched;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (fetched.size() > limit) {
+            T last = rows.get(rows.size() - 1);
+            String raw = key.apply(last) + "|" + id.apply(last);
+            response.header(NEXT_CURSOR, Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(raw.getBytes(StandardCharsets.UTF_8)));
+        }
+        if (fields == null || fields.isBlank()) return response.body(rows);
+        Set<String> keep = new LinkedHashSet<>();
+        for (String f : fields.split(",")) {
+            if (!f.isBlank()) keep.add(f.trim());
+        }
+        List<Map<String, Object>> trimmed = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            @SuppressWarnings("unchecked") Map<String, Object> all = objectMapper.convertValue(row, Map.class);
+            Map<String, Object> m = new LinkedHashMap<>();
+            for (String f : keep) {
+                if (all.containsKey(f)) m.put(f, all.get(f));
+            }
+            trimmed.add(m);
+        }
+        return response.body(trimmed);
+    }
+
+    public static final class Cursor {
+        private final String key;
+        private final Long id;
+
+        Cursor(String key, Long id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        /**
+         * Sort key for an ascending list; before every row on the first page.
+         */
+        public LocalDateTime timeAfter() {
+            return key != null ? time() : MIN_TIME;
+        }
+
+        /**
+         * Sort key for a descending list; after every row on the first page.
+         */
+        public LocalDateTime timeBefore() {
+            return key != null ? time() : MAX_TIME;
+        }
+
+        public Instant instantBefore() {
+            try {
+                return key != null ? Instant.parse(key) : MAX_TIME.toInstant(ZoneOffset.UTC);
+            } catch (DateTimeParseException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+
+        public long idAfter() {
+            return id != null ? id : 0L;
+        }
+
+        public long idBefore() {
+            return id != null ? id : Long.MAX_VALUE;
+        }
+
+        private LocalDateTime time() {
+            try {
+                return LocalDateTime.parse(key);
+            } catch (DateTimeParseException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+    }
+}
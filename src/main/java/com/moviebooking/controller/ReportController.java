@@ -1,21 +1,21 @@
 package com.moviebooking.controller;
 
-import com.moviebooking.service.AnalyticsService;
-import com.lowagie.text.Document;
-import com.lowagie.text.DocumentException;
-import com.lowagie.text.Paragraph;
-import com.lowagie.text.pdf.PdfWriter;
+import com.moviebooking.service.report.ReportService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.io.ByteArrayOutputStream;
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -23,93 +23,83 @@ import java.util.Map;
 @CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174", "http://localhost:5175"})
 public class ReportController {
 
-    private final AnalyticsService analyticsService;
+    private final ReportService reportService;
 
-    public ReportController(AnalyticsService analyticsService) {
-        this.analyticsService = analyticsService;
+    // How long /daily waits for a report before answering 202 with the job instead
+    @Value("${report.sync-wait-ms:2000}")
+    private long syncWaitMs;
+
+    public ReportController(ReportService reportService) {
+        this.reportService = reportService;
     }
 
-    @PostMapping("/daily")
+    @RequestMapping(value = "/daily", method = {RequestMethod.GET, RequestMethod.POST})
     @PreAuthorize("hasRole('SUPER_ADMIN')")
-    public ResponseEntity<byte[]> daily(
+    public ResponseEntity<?> daily(
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
             LocalDate date
-    ) throws DocumentException {
+    ) throws IOException {
         LocalDate d = (date != null) ? date : LocalDate.now();
-        Map<String, Object> kpisResp = analyticsService.getKpis(d, d);
-        List<Map<String, Object>> bookingsSeries = analyticsService.getSeriesBookings(d, d, "hour");
-        List<Map<String, Object>> revenueSeries = analyticsService.getSeriesRevenue(d, d, "hour");
-
-        // Additional windows for richer report
-        LocalDate last7From = d.minusDays(6);
-        List<Map<String, Object>> last7Bookings = analyticsService.getSeriesBookings(last7From, d, "day");
-        List<Map<String, Object>> last7Revenue = analyticsService.getSeriesRevenue(last7From, d, "day");
-
-        // Month-to-date and Year-to-date KPIs
-        LocalDate mtdFrom = d.withDayOfMonth(1);
-        LocalDate ytdFrom = d.withDayOfYear(1);
-        Map<String, Object> kpisMtd = analyticsService.getKpis(mtdFrom, d);
-        Map<String, Object> kpisYtd = analyticsService.getKpis(ytdFrom, d);
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        Document doc = new Document();
-        PdfWriter.getInstance(doc, baos);
-        doc.open();
-
-        doc.add(new Paragraph("Movie Platform Daily Report - " + d));
-        doc.add(new Paragraph("\nKPIs:"));
-        @SuppressWarnings("unchecked") Map<String, Object> kpis = (Map<String, Object>) kpisResp.get("kpis");
-        doc.add(new Paragraph("  Bookings: " + ((Map<?,?>)kpis.get("bookings")).get("count")));
-        doc.add(new Paragraph("  Revenue: " + ((Map<?,?>)kpis.get("revenue")).get("total")));
-        doc.add(new Paragraph("  DAU: " + kpis.get("dau")));
-        doc.add(new Paragraph("  MAU: " + kpis.get("mau")));
-        doc.add(new Paragraph("  Approval Rate: " + kpis.get("approvalRate")));
+        ReportService.Job job = reportService.submit(d);
+        Path file = reportService.await(job, syncWaitMs);
+        if (file == null) return accepted(job);
+        return pdf(d, file);
+    }
 
-        doc.add(new Paragraph("\nHourly Bookings:"));
-        for (Map<String, Object> p : bookingsSeries) {
-            doc.add(new Paragraph("  " + p.get("t") + " -> " + p.get("v")));
-        }
+    @PostMapping("/jobs")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<?> submit(
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate date
+    ) {
+        return accepted(reportService.submit((date != null) ? date : LocalDate.now()));
+    }
 
-        doc.add(new Paragraph("\nHourly Revenue:"));
-        for (Map<String, Object> p : revenueSeries) {
-            doc.add(new Paragraph("  " + p.get("t") + " -> " + p.get("v")));
-        }
+    @GetMapping("/jobs/{id}")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<?> job(@PathVariable String id) {
+        return ResponseEntity.ok(body(reportService.job(id)));
+    }
 
-        // Last 7 days daily series
-        doc.add(new Paragraph("\nLast 7 Days - Daily Bookings (" + last7From + " to " + d + "):"));
-        for (Map<String, Object> p : last7Bookings) {
-            doc.add(new Paragraph("  " + p.get("t") + " -> " + p.get("v")));
-        }
-        doc.add(new Paragraph("\nLast 7 Days - Daily Revenue (" + last7From + " to " + d + "):"));
-        for (Map<String, Object> p : last7Revenue) {
-            doc.add(new Paragraph("  " + p.get("t") + " -> " + p.get("v")));
+    @GetMapping("/jobs/{id}/file")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<?> file(@PathVariable String id) throws IOException {
+        ReportService.Job job = reportService.job(id);
+        Path file = job.getFile();
+        if (file == null) {
+            if (job.getStatus() == ReportService.Status.FAILED) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Report failed");
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", "Report is not ready yet"));
         }
+        return pdf(job.getDay(), file);
+    }
 
-        // MTD KPIs
-        @SuppressWarnings("unchecked") Map<String, Object> mtdK = (Map<String, Object>) kpisMtd.get("kpis");
-        doc.add(new Paragraph("\nMonth-to-Date KPIs (" + mtdFrom + " to " + d + "):"));
-        doc.add(new Paragraph("  Bookings: " + ((Map<?,?>)mtdK.get("bookings")).get("count")));
-        doc.add(new Paragraph("  Revenue: " + ((Map<?,?>)mtdK.get("revenue")).get("total")));
-        doc.add(new Paragraph("  DAU: " + mtdK.get("dau")));
-        doc.add(new Paragraph("  MAU: " + mtdK.get("mau")));
-        doc.add(new Paragraph("  Approval Rate: " + mtdK.get("approvalRate")));
-
-        // YTD KPIs
-        @SuppressWarnings("unchecked") Map<String, Object> ytdK = (Map<String, Object>) kpisYtd.get("kpis");
-        doc.add(new Paragraph("\nYear-to-Date KPIs (" + ytdFrom + " to " + d + "):"));
-        doc.add(new Paragraph("  Bookings: " + ((Map<?,?>)ytdK.get("bookings")).get("count")));
-        doc.add(new Paragraph("  Revenue: " + ((Map<?,?>)ytdK.get("revenue")).get("total")));
-        doc.add(new Paragraph("  DAU: " + ytdK.get("dau")));
-        doc.add(new Paragraph("  MAU: " + ytdK.get("mau")));
-        doc.add(new Paragraph("  Approval Rate: " + ytdK.get("approvalRate")));
+    private ResponseEntity<?> accepted(ReportService.Job job) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(HttpHeaders.LOCATION, "/api/analytics/report/jobs/" + job.getId())
+                .body(body(job));
+    }
 
-        doc.close();
+    // The job plus where to poll it and where to fetch its file
+    private Map<String, Object> body(ReportService.Job job) {
+        Map<String, Object> m = job.toMap();
+        m.put("url", "/api/analytics/report/jobs/" + job.getId());
+        m.put("fileUrl", "/api/analytics/report/jobs/" + job.getId() + "/file");
+        return m;
+    }
 
+    // GET requests get 304 on a matching If-None-Match and partial content for Range
+    private ResponseEntity<?> pdf(LocalDate d, Path file) throws IOException {
         String filename = "daily-report-" + d + ".pdf";
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag(ReportService.etag(file))
+                .lastModified(Files.getLastModifiedTime(file).toMillis())
                 .contentType(MediaType.APPLICATION_PDF)
-                .body(baos.toByteArray());
+                .body(new FileSystemResource(file));
     }
 }
@@ -1,25 +1,35 @@
 package com.moviebooking.controller;
 
+import com.moviebooking.dto.ScheduleRow;
 import com.moviebooking.entity.Schedule;
 import com.moviebooking.entity.User;
 import com.moviebooking.entity.ApprovalRequest;
 import com.moviebooking.entity.Theater;
 import com.moviebooking.entity.EventLog;
+import com.moviebooking.entity.SeatMap;
 import com.moviebooking.repository.ScheduleRepository;
 import com.moviebooking.repository.ApprovalRequestRepository;
-import com.moviebooking.repository.EventLogRepository;
-import com.moviebooking.repository.UserRepository;
 import com.moviebooking.repository.TheaterRepository;
-import com.moviebooking.service.AuthService;
+import com.moviebooking.security.AuthPrincipal;
+import com.moviebooking.security.CurrentUser;
+import com.moviebooking.service.eventlog.EventLogWriter;
+import com.moviebooking.service.SeatInventoryService;
+import com.moviebooking.service.schedule.ShowtimeCache;
+import com.moviebooking.service.schedule.ShowtimeIndex;
+import com.moviebooking.service.seat.SeatMapService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -41,19 +51,31 @@ public class ScheduleController {
   private ScheduleRepository scheduleRepository;
 
   @Autowired
-  private AuthService authService;
+  private CurrentUser currentUser;
 
   @Autowired
   private ApprovalRequestRepository approvalRequestRepository;
 
   @Autowired
-  private EventLogRepository eventLogRepository;
+  private EventLogWriter eventLogWriter;
 
   @Autowired
-  private UserRepository userRepository;
+  private TheaterRepository theaterRepository;
 
   @Autowired
-  private TheaterRepository theaterRepository;
+  private SeatInventoryService seatInventory;
+
+  @Autowired
+  private SeatMapService seatMapService;
+
+  @Autowired
+  private Paging paging;
+
+  @Autowired
+  private ShowtimeCache showtimeCache;
+
+  @Autowired
+  private ShowtimeIndex showtimeIndex;
 
   @GetMapping
   @Operation(summary = "Get all schedules", description = "Retrieve a list of all active schedules")
@@ -61,11 +83,17 @@ public class ScheduleController {
       @ApiResponse(responseCode = "200", description = "Successfully retrieved schedules", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ScheduleResponse.class))),
       @ApiResponse(responseCode = "500", description = "Internal server error")
   })
-  public List<ScheduleResponse> getAllSchedules() {
-    return scheduleRepository.findByActiveTrue()
+  public ResponseEntity<?> getAllSchedules(
+      @Parameter(description = "Cursor from the X-Next-Cursor header of the previous page") @RequestParam(required = false) String cursor,
+      @Parameter(description = "Page size, capped by api.page.max-limit") @RequestParam(required = false) Integer limit,
+      @Parameter(description = "Comma separated fields to return") @RequestParam(required = false) String fields) {
+    int size = paging.limit(limit, cursor);
+    Paging.Cursor after = Paging.cursor(cursor);
+    List<ScheduleResponse> rows = scheduleRepository.findRowPage(after.timeAfter(), after.idAfter(), PageRequest.of(0, size + 1))
         .stream()
         .map(ScheduleResponse::from)
         .toList();
+    return paging.page(rows, size, r -> r.showTime, r -> r.id, fields);
   }
 
   @GetMapping("/{id}")
@@ -81,6 +109,19 @@ public class ScheduleController {
     return schedule.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
   }
 
+  @GetMapping("/{id}/seats")
+  @Operation(summary = "Get seat map", description = "Seat layout of a schedule with sold and held seats as base64 bitmaps")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Successfully retrieved seat map", content = @Content(mediaType = "application/json", schema = @Schema(implementation = SeatMapResponse.class))),
+      @ApiResponse(responseCode = "404", description = "Schedule not found")
+  })
+  public ResponseEntity<SeatMapResponse> getSeatMap(
+      @Parameter(description = "Schedule ID", required = true) @PathVariable Long id) {
+    Optional<Schedule> schedule = scheduleRepository.findById(id);
+    return schedule.map(s -> ResponseEntity.ok(SeatMapResponse.from(seatMapService.view(s))))
+        .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
   @GetMapping("/theater/{theaterId}")
   @Operation(summary = "Get schedules by theater", description = "Retrieve all schedules for a specific theater")
   @ApiResponses(value = {
@@ -89,35 +130,37 @@ public class ScheduleController {
   })
   public List<ScheduleResponse> getSchedulesByTheater(
       @Parameter(description = "Theater ID", required = true) @PathVariable Long theaterId) {
-    return scheduleRepository.findByTheaterIdAndActiveTrue(theaterId)
+    return showtimeCache.byTheater(theaterId)
         .stream()
         .map(ScheduleResponse::from)
         .toList();
   }
 
   @GetMapping("/my-schedules")
-  @Operation(summary = "Get my schedules", description = "Retrieve all schedules for theaters owned by the authenticated user")
+  @Operation(summary = "Get my schedules", description = "Retrieve schedules for theaters owned by the authenticated user, optionally within a show time window and by status")
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Successfully retrieved schedules", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ScheduleResponse.class))),
       @ApiResponse(responseCode = "401", description = "Unauthorized"),
       @ApiResponse(responseCode = "500", description = "Internal server error")
   })
-  public ResponseEntity<List<ScheduleResponse>> getMySchedules(
-      @Parameter(description = "Authorization header with Bearer token", required = true) @RequestHeader("Authorization") String authHeader) {
+  public ResponseEntity<?> getMySchedules(
+      @Parameter(description = "Earliest show time") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+      @Parameter(description = "Latest show time") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+      @Parameter(description = "Comma separated statuses, e.g. DRAFT,ON_SALE") @RequestParam(required = false) String status) {
+    List<Schedule.Status> statuses;
     try {
-      if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-        return ResponseEntity.status(401).build();
-      }
-
-      String token = authHeader.substring(7);
-      User user = authService.validateToken(token);
+      statuses = status == null || status.isBlank()
+          ? List.of(Schedule.Status.values())
+          : Arrays.stream(status.split(",")).map(v -> Schedule.Status.valueOf(v.trim().toUpperCase())).toList();
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(Map.of("message", "Unknown status " + status));
+    }
+    try {
+      AuthPrincipal user = currentUser.principal();
 
       if (user != null) {
-        List<ScheduleResponse> schedules = scheduleRepository.findAll()
+        List<ScheduleResponse> schedules = scheduleRepository.findRowsByTheaterOwnerId(user.getId(), from, to, statuses)
             .stream()
-            .filter(schedule -> schedule.getTheater() != null
-                && schedule.getTheater().getOwner() != null
-                && schedule.getTheater().getOwner().getId().equals(user.getId()))
             .map(ScheduleResponse::from)
             .toList();
         return ResponseEntity.ok(schedules);
@@ -137,7 +180,7 @@ public class ScheduleController {
   })
   public List<ScheduleResponse> getSchedulesByMovie(
       @Parameter(description = "Movie ID", required = true) @PathVariable Long movieId) {
-    return scheduleRepository.findByMovieIdAndActiveTrue(movieId)
+    return showtimeCache.byMovie(movieId)
         .stream()
         .map(ScheduleResponse::from)
         .toList();
@@ -151,13 +194,38 @@ public class ScheduleController {
   })
   public List<ScheduleResponse> getSchedulesByDateRange(
       @Parameter(description = "Start date and time", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
-      @Parameter(description = "End date and time", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
-    return scheduleRepository.findByShowTimeBetweenAndActiveTrue(startTime, endTime)
+      @Parameter(description = "End date and time", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+      @Parameter(description = "Only this theater") @RequestParam(required = false) Long theaterId) {
+    return showtimeIndex.between(startTime, endTime, theaterId)
         .stream()
         .map(ScheduleResponse::from)
         .toList();
   }
 
+  @GetMapping("/upcoming")
+  @Operation(summary = "Get upcoming schedules", description = "Shows starting in the next few hours, optionally in one city or theater")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Successfully retrieved schedules", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ScheduleResponse.class))),
+      @ApiResponse(responseCode = "500", description = "Internal server error")
+  })
+  public List<ScheduleResponse> getUpcomingSchedules(
+      @Parameter(description = "Hours ahead, 1 to 48") @RequestParam(defaultValue = "3") int hours,
+      @Parameter(description = "City of the theater") @RequestParam(required = false) String city,
+      @Parameter(description = "Theater ID") @RequestParam(required = false) Long theaterId) {
+    LocalDateTime now = LocalDateTime.now();
+    LocalDateTime end = now.plusHours(Math.max(1, Math.min(48, hours)));
+    if (city == null || city.isBlank() || theaterId != null) {
+      return showtimeIndex.between(now, end, theaterId).stream().map(ScheduleResponse::from).toList();
+    }
+    // one range scan per theater in the city, merged back into show time order
+    List<ScheduleRow> rows = new ArrayList<>();
+    for (Theater theater : theaterRepository.findByCityAndApprovedTrueAndActiveTrue(city.trim())) {
+      rows.addAll(showtimeIndex.between(now, end, theater.getId()));
+    }
+    rows.sort(Comparator.comparing(ScheduleRow::getShowTime).thenComparing(ScheduleRow::getId));
+    return rows.stream().map(ScheduleResponse::from).toList();
+  }
+
   @PostMapping
   @PreAuthorize("hasRole('THEATER_OWNER') or hasRole('ADMIN')")
   @Operation(summary = "Create new schedule", description = "Add a new schedule to the system")
@@ -168,10 +236,8 @@ public class ScheduleController {
   })
   public Schedule createSchedule(
       @Parameter(description = "Schedule object", required = true) @RequestBody Schedule schedule) {
-    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-    String email = auth.getName();
-    User user = userRepository.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found"));
-    
+    AuthPrincipal user = currentUser.principal();
+
     if (user.getRole() == User.UserRole.THEATER_OWNER) {
       List<Theater> theaters = theaterRepository.findByOwnerId(user.getId());
       if (theaters.isEmpty()) {
@@ -186,7 +252,9 @@ public class ScheduleController {
       }
     }
     
-    return scheduleRepository.save(schedule);
+    Schedule saved = scheduleRepository.save(schedule);
+    scheduleChanged(saved);
+    return saved;
   }
 
   @PutMapping("/{id}")
@@ -195,6 +263,7 @@ public class ScheduleController {
       @ApiResponse(responseCode = "200", description = "Schedule updated successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Schedule.class))),
       @ApiResponse(responseCode = "404", description = "Schedule not found"),
       @ApiResponse(responseCode = "400", description = "Invalid input data"),
+      @ApiResponse(responseCode = "409", description = "Seat count changed on a schedule with a seat map"),
       @ApiResponse(responseCode = "500", description = "Internal server error")
   })
   public ResponseEntity<Schedule> updateSchedule(
@@ -203,16 +272,22 @@ public class ScheduleController {
     Optional<Schedule> schedule = scheduleRepository.findById(id);
     if (schedule.isPresent()) {
       Schedule updatedSchedule = schedule.get();
+      // the lists it was in before the edit
+      Long oldMovieId = updatedSchedule.getMovie() != null ? updatedSchedule.getMovie().getId() : null;
+      Long oldTheaterId = updatedSchedule.getTheater() != null ? updatedSchedule.getTheater().getId() : null;
       updatedSchedule.setMovie(scheduleDetails.getMovie());
       updatedSchedule.setTheater(scheduleDetails.getTheater());
       updatedSchedule.setShowTime(scheduleDetails.getShowTime());
       updatedSchedule.setPrice(scheduleDetails.getPrice());
-      updatedSchedule.setAvailableSeats(scheduleDetails.getAvailableSeats());
-      updatedSchedule.setTotalSeats(scheduleDetails.getTotalSeats());
+      resize(updatedSchedule, scheduleDetails.getTotalSeats());
       updatedSchedule.setScreenNumber(scheduleDetails.getScreenNumber());
       updatedSchedule.setAdditionalInfo(scheduleDetails.getAdditionalInfo());
       updatedSchedule.setActive(scheduleDetails.isActive());
-      return ResponseEntity.ok(scheduleRepository.save(updatedSchedule));
+      Schedule saved = scheduleRepository.save(updatedSchedule);
+      seatInventory.evict(id);
+      showtimeCache.evict(oldMovieId, oldTheaterId);
+      scheduleChanged(saved);
+      return ResponseEntity.ok(saved);
     } else {
       return ResponseEntity.notFound().build();
     }
@@ -233,7 +308,9 @@ public class ScheduleController {
     if (schedule.isPresent()) {
       Schedule updatedSchedule = schedule.get();
       updatedSchedule.setActive(statusMap.get("active"));
-      return ResponseEntity.ok(scheduleRepository.save(updatedSchedule));
+      Schedule saved = scheduleRepository.save(updatedSchedule);
+      scheduleChanged(saved);
+      return ResponseEntity.ok(saved);
     } else {
       return ResponseEntity.notFound().build();
     }
@@ -251,6 +328,8 @@ public class ScheduleController {
     Optional<Schedule> schedule = scheduleRepository.findById(id);
     if (schedule.isPresent()) {
       scheduleRepository.delete(schedule.get());
+      seatInventory.evict(id);
+      scheduleChanged(schedule.get());
       return ResponseEntity.noContent().build();
     } else {
       return ResponseEntity.notFound().build();
@@ -259,13 +338,9 @@ public class ScheduleController {
 
   // Owner: submit schedule for approval
   @PostMapping("/{id}/submit-for-approval")
-  public ResponseEntity<?> submitForApproval(@PathVariable Long id,
-                                             @RequestHeader(value = "Authorization", required = false) String authorization) {
+  public ResponseEntity<?> submitForApproval(@PathVariable Long id) {
     try {
-      if (authorization == null || !authorization.startsWith("Bearer ")) {
-        return ResponseEntity.status(401).body(java.util.Map.of("message", "Unauthorized"));
-      }
-      User user = authService.validateToken(authorization.substring(7));
+      User user = currentUser.user();
       if (user == null) return ResponseEntity.status(401).body(java.util.Map.of("message", "Unauthorized"));
       Optional<Schedule> opt = scheduleRepository.findById(id);
       if (opt.isEmpty()) return ResponseEntity.status(404).body(java.util.Map.of("message", "Schedule not found"));
@@ -275,6 +350,7 @@ public class ScheduleController {
       s.setStatus(Schedule.Status.APPROVED == s.getStatus() ? s.getStatus() : Schedule.Status.DRAFT);
       s.setStatus(Schedule.Status.DRAFT); // normalize
       scheduleRepository.save(s);
+      showtimeCache.evict(s);
 
       ApprovalRequest ar = new ApprovalRequest();
       ar.setEntityType(ApprovalRequest.EntityType.SHOW);
@@ -289,7 +365,7 @@ public class ScheduleController {
       ev.setEventType("SUBMIT");
       ev.setFromStatus(from != null ? from.name() : null);
       ev.setToStatus(s.getStatus().name());
-      eventLogRepository.save(ev);
+      eventLogWriter.append(ev);
 
       return ResponseEntity.ok(s);
     } catch (Exception e) {
@@ -299,8 +375,7 @@ public class ScheduleController {
 
   // Admin: put a schedule on sale (requires approved)
   @PatchMapping("/{id}/on-sale")
-  public ResponseEntity<?> setOnSale(@PathVariable Long id,
-                                     @RequestHeader(value = "Authorization", required = false) String authorization) {
+  public ResponseEntity<?> setOnSale(@PathVariable Long id) {
     try {
       Optional<Schedule> opt = scheduleRepository.findById(id);
       if (opt.isEmpty()) return ResponseEntity.status(404).body(java.util.Map.of("message", "Schedule not found"));
@@ -311,14 +386,15 @@ public class ScheduleController {
       Schedule.Status from = s.getStatus();
       s.setStatus(Schedule.Status.ON_SALE);
       scheduleRepository.save(s);
+      showtimeCache.evict(s);
       EventLog ev = new EventLog();
       ev.setEntityType(EventLog.EntityType.SHOW);
       ev.setEntityId(s.getId());
-      ev.setUser(getUser(authorization));
+      ev.setUser(currentUser.user());
       ev.setEventType("ON_SALE");
       ev.setFromStatus(from.name());
       ev.setToStatus(s.getStatus().name());
-      eventLogRepository.save(ev);
+      eventLogWriter.append(ev);
       return ResponseEntity.ok(s);
     } catch (Exception e) {
       return ResponseEntity.status(500).build();
@@ -327,8 +403,7 @@ public class ScheduleController {
 
   // Admin: cancel a schedule
   @PatchMapping("/{id}/cancel")
-  public ResponseEntity<?> cancel(@PathVariable Long id,
-                                  @RequestHeader(value = "Authorization", required = false) String authorization) {
+  public ResponseEntity<?> cancel(@PathVariable Long id) {
     try {
       Optional<Schedule> opt = scheduleRepository.findById(id);
       if (opt.isEmpty()) return ResponseEntity.status(404).body(java.util.Map.of("message", "Schedule not found"));
@@ -336,23 +411,40 @@ public class ScheduleController {
       Schedule.Status from = s.getStatus();
       s.setStatus(Schedule.Status.CANCELLED);
       scheduleRepository.save(s);
+      showtimeCache.evict(s);
       EventLog ev = new EventLog();
       ev.setEntityType(EventLog.EntityType.SHOW);
       ev.setEntityId(s.getId());
-      ev.setUser(getUser(authorization));
+      ev.setUser(currentUser.user());
       ev.setEventType("CANCEL");
       ev.setFromStatus(from != null ? from.name() : null);
       ev.setToStatus(s.getStatus().name());
-      eventLogRepository.save(ev);
+      eventLogWriter.append(ev);
       return ResponseEntity.ok(s);
     } catch (Exception e) {
       return ResponseEntity.status(500).build();
     }
   }
 
-  private User getUser(String authorization) {
-    if (authorization == null || !authorization.startsWith("Bearer ")) return null;
-    return authService.validateToken(authorization.substring(7));
+  // Keeps the showtime lists and the time index in step with a saved or deleted schedule
+  // Available seats follow from the sold ones and are never taken from the client. A seat map
+  // keeps the capacity it was created with, so once one exists the seat count is fixed.
+  private void resize(Schedule s, Integer totalSeats) {
+    if (totalSeats == null || totalSeats.equals(s.getTotalSeats())) return;
+    if (seatMapService.mapped(s.getId())) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "Seat count cannot change once seats have been assigned");
+    }
+    int taken = s.getTotalSeats() - s.getAvailableSeats();
+    if (totalSeats < taken) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "totalSeats is below the " + taken + " seats already taken");
+    }
+    s.setTotalSeats(totalSeats);
+    s.setAvailableSeats(totalSeats - taken);
+  }
+
+  private void scheduleChanged(Schedule s) {
+    showtimeCache.evict(s);
+    showtimeIndex.refresh(s.getId());
   }
 
   // Lightweight DTO to avoid serializing lazy proxies for movie/theater
@@ -392,5 +484,49 @@ public class ScheduleController {
       r.additionalInfo = s.getAdditionalInfo();
       return r;
     }
+
+    public static ScheduleResponse from(ScheduleRow row) {
+      ScheduleResponse r = new ScheduleResponse();
+      r.id = row.getId();
+      r.movieId = row.getMovieId();
+      r.movieTitle = row.getMovieTitle();
+      r.theaterId = row.getTheaterId();
+      r.theaterName = row.getTheaterName();
+      r.showTime = row.getShowTime();
+      r.price = row.getPrice();
+      r.availableSeats = row.getAvailableSeats();
+      r.totalSeats = row.getTotalSeats();
+      r.active = Boolean.TRUE.equals(row.getActive());
+      r.createdAt = row.getCreatedAt();
+      r.screenNumber = row.getScreenNumber();
+      r.additionalInfo = row.getAdditionalInfo();
+      return r;
+    }
+  }
+
+  // Seat map; sold/held are big-endian 64-bit words where bit (i % 64) of word (i / 64) is seat i,
+  // i.e. row i / columns and column i % columns (labels A1, A2, ...)
+  public static class SeatMapResponse {
+    public Long scheduleId;
+    public int rows;
+    public int columns;
+    public int capacity;
+    public int available;
+    public String sold;
+    public String held;
+
+    public static SeatMapResponse from(SeatMap m) {
+      SeatMapResponse r = new SeatMapResponse();
+      r.scheduleId = m.getScheduleId();
+      r.rows = m.getSeatRows();
+      r.columns = m.getSeatColumns();
+      r.capacity = m.getCapacity();
+      var sold = SeatMapService.sold(m);
+      var held = SeatMapService.held(m);
+      r.available = m.getCapacity() - sold.cardinality() - held.cardinality();
+      r.sold = java.util.Base64.getEncoder().encodeToString(sold.toBytes());
+      r.held = java.util.Base64.getEncoder().encodeToString(held.toBytes());
+      return r;
+    }
   }
-}
\ No newline at end of file
+}
@@ -6,9 +6,12 @@ import com.moviebooking.entity.EventLog;
 import com.moviebooking.entity.User;
 import com.moviebooking.repository.TheaterRepository;
 import com.moviebooking.repository.ApprovalRequestRepository;
-import com.moviebooking.repository.EventLogRepository;
-import com.moviebooking.service.AuthService;
+import com.moviebooking.security.CurrentUser;
+import com.moviebooking.service.schedule.ShowtimeCache;
+import com.moviebooking.service.schedule.ShowtimeIndex;
+import com.moviebooking.service.eventlog.EventLogWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -25,36 +28,44 @@ public class TheaterController {
     private TheaterRepository theaterRepository;
 
     @Autowired
-    private AuthService authService;
+    private CurrentUser currentUser;
 
     @Autowired
     private ApprovalRequestRepository approvalRequestRepository;
 
     @Autowired
-    private EventLogRepository eventLogRepository;
+    private EventLogWriter eventLogWriter;
+
+    @Autowired
+    private Paging paging;
+
+    @Autowired
+    private ShowtimeCache showtimeCache;
+
+    @Autowired
+    private ShowtimeIndex showtimeIndex;
 
     // List theaters
     @GetMapping
-    public ResponseEntity<List<TheaterResponse>> getAllTheaters(
+    public ResponseEntity<?> getAllTheaters(
             @RequestParam(value = "approvedOnly", defaultValue = "false") boolean approvedOnly,
             @RequestParam(value = "activeOnly", defaultValue = "false") boolean activeOnly,
             @RequestParam(value = "city", required = false) String city,
-            @RequestParam(value = "ownerId", required = false) Long ownerId
+            @RequestParam(value = "ownerId", required = false) Long ownerId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "fields", required = false) String fields
     ) {
+        int size = paging.limit(limit, cursor);
+        Paging.Cursor after = Paging.cursor(cursor);
         try {
-            List<Theater> result;
-            if (ownerId != null) {
-                result = theaterRepository.findByOwnerId(ownerId);
-            } else if (city != null && !city.isBlank()) {
-                result = theaterRepository.findByCityAndApprovedTrueAndActiveTrue(city);
-            } else if (approvedOnly || activeOnly) {
-                result = theaterRepository.findByApprovedTrueAndActiveTrue();
-            } else {
-                result = theaterRepository.findAll();
-            }
-
-            List<TheaterResponse> dtoList = result.stream().map(TheaterResponse::from).toList();
-            return ResponseEntity.ok(dtoList);
+            // an owner's list ignores the other filters; a city implies approved and active
+            String cityFilter = (ownerId == null && city != null && !city.isBlank()) ? city : null;
+            boolean approvedActive = ownerId == null && (cityFilter != null || approvedOnly || activeOnly);
+            List<TheaterResponse> dtoList = theaterRepository.findPage(ownerId, approvedActive, cityFilter,
+                            after.timeAfter(), after.idAfter(), PageRequest.of(0, size + 1))
+                    .stream().map(TheaterResponse::from).toList();
+            return paging.page(dtoList, size, r -> r.createdAt, r -> r.id, fields);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
@@ -74,17 +85,12 @@ public class TheaterController {
     // Create theater
     @PostMapping
     public ResponseEntity<Theater> createTheater(
-            @RequestBody Theater theater,
-            @RequestHeader(value = "Authorization", required = false) String authorization
+            @RequestBody Theater theater
     ) {
         try {
             // Resolve owner from bearer token if not provided in request
             if (theater.getOwner() == null) {
-                if (authorization == null || !authorization.startsWith("Bearer ")) {
-                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-                }
-                String token = authorization.substring("Bearer ".length());
-                User current = authService.validateToken(token);
+                User current = currentUser.user();
                 if (current == null) {
                     return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
                 }
@@ -128,6 +134,9 @@ public class TheaterController {
             if (theaterDetails.getOwner() != null) existing.setOwner(theaterDetails.getOwner());
 
             Theater updated = theaterRepository.save(existing);
+            // showtime lists and the index carry the theater name
+            showtimeCache.clear();
+            showtimeIndex.reloadAll();
             return ResponseEntity.ok(updated);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
@@ -142,6 +151,8 @@ public class TheaterController {
                 return ResponseEntity.notFound().build();
             }
             theaterRepository.deleteById(id);
+            showtimeCache.clear();
+            showtimeIndex.reloadAll();
             return ResponseEntity.noContent().build();
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
@@ -150,13 +161,9 @@ public class TheaterController {
 
     // Owner: submit theater for approval
     @PostMapping("/{id}/submit-for-approval")
-    public ResponseEntity<?> submitForApproval(@PathVariable Long id,
-                                               @RequestHeader(value = "Authorization", required = false) String authorization) {
+    public ResponseEntity<?> submitForApproval(@PathVariable Long id) {
         try {
-            if (authorization == null || !authorization.startsWith("Bearer ")) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(java.util.Map.of("message", "Unauthorized"));
-            }
-            User user = authService.validateToken(authorization.substring(7));
+            User user = currentUser.user();
             if (user == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(java.util.Map.of("message", "Unauthorized"));
 
             Optional<Theater> opt = theaterRepository.findById(id);
@@ -182,7 +189,7 @@ public class TheaterController {
             ev.setEventType("SUBMIT");
             ev.setFromStatus(from != null ? from.name() : null);
             ev.setToStatus(t.getStatus().name());
-            eventLogRepository.save(ev);
+            eventLogWriter.append(ev);
 
             return ResponseEntity.ok(t);
         } catch (Exception e) {
@@ -192,8 +199,7 @@ public class TheaterController {
 
     // Admin: activate theater
     @PatchMapping("/{id}/activate")
-    public ResponseEntity<?> activate(@PathVariable Long id,
-                                      @RequestHeader(value = "Authorization", required = false) String authorization) {
+    public ResponseEntity<?> activate(@PathVariable Long id) {
         try {
             Optional<Theater> opt = theaterRepository.findById(id);
             if (opt.isEmpty()) return ResponseEntity.status(404).body(java.util.Map.of("message", "Theater not found"));
@@ -206,11 +212,11 @@ public class TheaterController {
             EventLog ev = new EventLog();
             ev.setEntityType(EventLog.EntityType.THEATER);
             ev.setEntityId(t.getId());
-            ev.setUser(getUser(authorization));
+            ev.setUser(currentUser.user());
             ev.setEventType("ACTIVATE");
             ev.setFromStatus(from != null ? from.name() : null);
             ev.setToStatus(t.getStatus().name());
-            eventLogRepository.save(ev);
+            eventLogWriter.append(ev);
             return ResponseEntity.ok(t);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
@@ -219,8 +225,7 @@ public class TheaterController {
 
     // Admin: deactivate theater
     @PatchMapping("/{id}/deactivate")
-    public ResponseEntity<?> deactivate(@PathVariable Long id,
-                                        @RequestHeader(value = "Authorization", required = false) String authorization) {
+    public ResponseEntity<?> deactivate(@PathVariable Long id) {
         try {
             Optional<Theater> opt = theaterRepository.findById(id);
             if (opt.isEmpty()) return ResponseEntity.status(404).body(java.util.Map.of("message", "Theater not found"));
@@ -233,21 +238,17 @@ public class TheaterController {
             EventLog ev = new EventLog();
             ev.setEntityType(EventLog.EntityType.THEATER);
             ev.setEntityId(t.getId());
-            ev.setUser(getUser(authorization));
+            ev.setUser(currentUser.user());
             ev.setEventType("DEACTIVATE");
             ev.setFromStatus(from != null ? from.name() : null);
             ev.setToStatus(t.getStatus().name());
-            eventLogRepository.save(ev);
+            eventLogWriter.append(ev);
             return ResponseEntity.ok(t);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
     }
 
-    private User getUser(String authorization) {
-        if (authorization == null || !authorization.startsWith("Bearer ")) return null;
-        return authService.validateToken(authorization.substring(7));
-    }
     // Toggle active status (to match frontend theaterService.toggleTheaterStatus)
     @PatchMapping("/{id}/status")
     @PreAuthorize("hasRole('ADMIN')")
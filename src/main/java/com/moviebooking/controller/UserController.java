@@ -2,7 +2,9 @@ package com.moviebooking.controller;
 
 import com.moviebooking.entity.User;
 import com.moviebooking.repository.UserRepository;
+import com.moviebooking.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -26,14 +28,26 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private Paging paging;
+
     @GetMapping
     @Operation(summary = "Get all users", description = "Retrieve a list of all users")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved users", content = @Content(mediaType = "application/json", schema = @Schema(implementation = User.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public ResponseEntity<?> getAllUsers(
+            @Parameter(description = "Cursor from the X-Next-Cursor header of the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size, capped by api.page.max-limit") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Comma separated fields to return") @RequestParam(required = false) String fields) {
+        int size = paging.limit(limit, cursor);
+        Paging.Cursor after = Paging.cursor(cursor);
+        List<User> rows = userRepository.findPage(after.timeAfter(), after.idAfter(), PageRequest.of(0, size + 1));
+        return paging.page(rows, size, User::getCreatedAt, User::getId, fields);
     }
 
     @GetMapping("/{id}")
@@ -75,12 +89,16 @@ public class UserController {
         Optional<User> user = userRepository.findById(id);
         if (user.isPresent()) {
             User updatedUser = user.get();
+            boolean signOut = updatedUser.getRole() != userDetails.getRole()
+                    || (updatedUser.isActive() && !userDetails.isActive());
             updatedUser.setFirstName(userDetails.getFirstName());
             updatedUser.setLastName(userDetails.getLastName());
             updatedUser.setEmail(userDetails.getEmail());
             updatedUser.setRole(userDetails.getRole());
             updatedUser.setActive(userDetails.isActive());
-            return ResponseEntity.ok(userRepository.save(updatedUser));
+            User saved = userRepository.save(updatedUser);
+            if (signOut) authService.revokeTokens(id); else authService.evictUser(id);
+            return ResponseEntity.ok(saved);
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -98,6 +116,7 @@ public class UserController {
         Optional<User> user = userRepository.findById(id);
         if (user.isPresent()) {
             userRepository.delete(user.get());
+            authService.revokeTokens(id);
             return ResponseEntity.noContent().build();
         } else {
             return ResponseEntity.notFound().build();
@@ -0,0 +1,16 @@
+package com.moviebooking.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Bookings in one time bucket, aggregated by the database.
+ */
+public interface BookingBucket {
+
+  // Bucket label, e.g. "2024-05-01" or "2024-05-01T13:00"
+  String getBucket();
+
+  Long getBookings();
+
+  BigDecimal getRevenue();
+}
@@ -0,0 +1,13 @@
+package com.moviebooking.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Booking totals over a date range, aggregated by the database.
+ */
+public interface BookingTotals {
+
+  Long getBookings();
+
+  BigDecimal getRevenue();
+}
@@ -0,0 +1,36 @@
+package com.moviebooking.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A schedule with its movie title and theater name, read in one statement.
+ */
+public interface ScheduleRow {
+
+  Long getId();
+
+  Long getMovieId();
+
+  String getMovieTitle();
+
+  Long getTheaterId();
+
+  String getTheaterName();
+
+  LocalDateTime getShowTime();
+
+  BigDecimal getPrice();
+
+  Integer getAvailableSeats();
+
+  Integer getTotalSeats();
+
+  Boolean getActive();
+
+  LocalDateTime getCreatedAt();
+
+  String getScreenNumber();
+
+  String getAdditionalInfo();
+}
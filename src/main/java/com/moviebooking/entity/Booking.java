@@ -9,20 +9,29 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        @Index(name = "idx_bookings_created_at", columnList = "created_at"),
+        @Index(name = "idx_bookings_user_created_at", columnList = "user_id, created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Booking {
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     public enum Status {
+        HELD,
         CREATED,
         CANCELLED,
-        PAID
+        PAID,
+        EXPIRED
     }
 
+    // Pooled sequence rather than IDENTITY so that Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = Booking.ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -36,13 +45,21 @@ public class Booking {
     @Column(nullable = false)
     private Integer seatsCount;
 
+    // Comma-separated seat labels (e.g. "C4,C5"); empty for bookings made before seat maps
+    @Column(length = 2000)
+    private String seatNumbers;
+
     @Column(nullable = false)
     private BigDecimal totalAmount;
 
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false, length = 20)
+    @Column(nullable = false, length = 20, columnDefinition = "varchar(20)")
     private Status status = Status.CREATED;
 
     @Column(nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Set while status is HELD; the seats go back to the schedule after this
+    @Column
+    private LocalDateTime holdExpiresAt;
 }
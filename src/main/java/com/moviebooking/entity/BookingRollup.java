@@ -0,0 +1,52 @@
+package com.moviebooking.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Bookings pre-aggregated per creation day, theater, movie and status. Kept in
+ * step with the bookings table by BookingRollupService, in the same transaction
+ * as the booking change.
+ */
+@Entity
+@Table(name = "booking_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_booking_rollup_key", columnNames = {"day", "theater_id", "movie_id", "status"})
+}, indexes = {
+        @Index(name = "idx_booking_rollup_theater_day", columnList = "theater_id, day")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(name = "theater_id", nullable = false)
+    private Long theaterId;
+
+    @Column(name = "movie_id", nullable = false)
+    private Long movieId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20, columnDefinition = "varchar(20)")
+    private Booking.Status status;
+
+    @Column(nullable = false)
+    private long bookings;
+
+    @Column(nullable = false)
+    private long seats;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+}
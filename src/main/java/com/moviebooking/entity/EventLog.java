@@ -8,7 +8,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "event_logs")
+@Table(name = "event_logs", indexes = {
+        @Index(name = "idx_event_logs_type_at", columnList = "eventType, at"),
+        @Index(name = "idx_event_logs_entity_at", columnList = "entityType, entityId, at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -26,8 +29,9 @@ public class EventLog {
     @Column(nullable = false)
     private Long entityId;
 
+    // No foreign key: audit rows outlive their users, and MySQL cannot partition tables that have one
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user_id")
+    @JoinColumn(name = "user_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private User user;
 
     @Column(nullable = false)
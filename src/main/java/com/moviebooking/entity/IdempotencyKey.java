@@ -0,0 +1,40 @@
+package com.moviebooking.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_user_key", columnNames = {"userId", "idemKey"}),
+        indexes = @Index(name = "idx_idempotency_created", columnList = "createdAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    // Client-supplied Idempotency-Key header
+    @Column(nullable = false, length = 100)
+    private String idemKey;
+
+    // Hash of what the first request asked for; a replay must match it. Null on rows from before it was kept
+    @Column(length = 64)
+    private String fingerprint;
+
+    // Booking created by the first request with this key
+    @Column(nullable = false)
+    private Long bookingId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
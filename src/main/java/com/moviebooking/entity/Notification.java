@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+        @Index(name = "idx_notifications_user_created_at", columnList = "user_id, created_at")
+})
 public class Notification {
     public enum Type {
         BOOKING, THEATER, MOVIE, SCHEDULE, USER, SYSTEM
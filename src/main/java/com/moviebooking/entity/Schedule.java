@@ -9,7 +9,10 @@ import java.time.LocalDateTime;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "schedules")
+@Table(name = "schedules", indexes = {
+    @Index(name = "idx_schedules_show_time", columnList = "show_time"),
+    @Index(name = "idx_schedules_theater_show_time", columnList = "theater_id, show_time")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -68,4 +71,9 @@ public class Schedule {
 
   @Column(length = 1000)
   private String approvalNotes;
-}
\ No newline at end of file
+
+  // Optimistic lock; seat updates from bookings bump it as well
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  private long version;
+}
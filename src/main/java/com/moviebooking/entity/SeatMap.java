@@ -0,0 +1,41 @@
+package com.moviebooking.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "seat_maps")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatMap {
+
+    // One map per schedule, keyed by the schedule id
+    @Id
+    private Long scheduleId;
+
+    @Column(nullable = false)
+    private Integer seatRows;
+
+    @Column(nullable = false)
+    private Integer seatColumns;
+
+    // Seats beyond capacity in the last row do not exist
+    @Column(nullable = false)
+    private Integer capacity;
+
+    // Two packed bitmaps back to back: sold seats, then held seats
+    @Lob
+    @Column(nullable = false, columnDefinition = "blob")
+    private byte[] bits;
+
+    @Version
+    private Long version;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+}
@@ -1,5 +1,6 @@
 package com.moviebooking.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -40,6 +41,11 @@ public class User {
     @Column(nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Epoch second; tokens issued before it are refused on every node
+    @JsonIgnore
+    @Column(name = "tokens_valid_after")
+    private Long tokensValidAfter;
+
     public enum UserRole {
         SUPER_ADMIN, ADMIN, THEATER_OWNER, CUSTOMER
     }
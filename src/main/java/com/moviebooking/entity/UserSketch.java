@@ -0,0 +1,42 @@
+package com.moviebooking.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * HyperLogLog registers of the users who booked on one day, at one theater or,
+ * with theaterId 0, anywhere.
+ */
+@Entity
+@Table(name = "user_sketches", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_user_sketch_day_theater", columnNames = {"day", "theater_id"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSketch {
+
+    public static final long ALL_THEATERS = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(name = "theater_id", nullable = false)
+    private Long theaterId;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "blob")
+    private byte[] registers;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+}
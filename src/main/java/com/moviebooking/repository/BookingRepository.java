@@ -1,15 +1,33 @@
 package com.moviebooking.repository;
 
+import com.moviebooking.dto.BookingBucket;
+import com.moviebooking.dto.BookingTotals;
 import com.moviebooking.entity.Booking;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.time.LocalDateTime;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
     List<Booking> findByUserId(Long userId);
+
+    // Keyset page of a user's bookings, newest first, with schedule, movie and theater in the same statement
+    @Query("select b from Booking b left join fetch b.schedule s left join fetch s.movie left join fetch s.theater " +
+            "where b.user.id = :userId and (b.createdAt < :before or (b.createdAt = :before and b.id < :beforeId)) " +
+            "order by b.createdAt desc, b.id desc")
+    List<Booking> findPageForUser(@Param("userId") Long userId, @Param("before") LocalDateTime before,
+                                  @Param("beforeId") long beforeId, Pageable page);
     List<Booking> findByScheduleId(Long scheduleId);
 
     // Date range queries
@@ -21,4 +39,54 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
 
     // Scopes for user
     List<Booking> findByUserIdAndCreatedAtBetween(Long userId, LocalDateTime start, LocalDateTime end);
+
+    // Aggregates for analytics and reports; only the grouped rows leave the database
+    @Query(value = "select count(*) as bookings, coalesce(sum(total_amount), 0) as revenue " +
+            "from bookings where created_at between :start and :end", nativeQuery = true)
+    BookingTotals totalsBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // format is a MySQL date_format pattern, e.g. %Y-%m-%d for days
+    @Query(value = "select date_format(created_at, :format) as bucket, count(*) as bookings, " +
+            "coalesce(sum(total_amount), 0) as revenue from bookings where created_at between :start and :end " +
+            "group by bucket order by bucket", nativeQuery = true)
+    List<BookingBucket> bucketsBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                       @Param("format") String format);
+
+    // Seats taken per schedule, used to rebuild the seat inventory
+    @Query("select b.schedule.id, sum(b.seatsCount) from Booking b where b.status not in :statuses group by b.schedule.id")
+    List<Object[]> sumSeatsByScheduleExcludingStatuses(@Param("statuses") Collection<Booking.Status> statuses);
+
+    // Row lock for status changes that give seats back (cancel, confirm, hold expiry)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Booking b where b.id = :id")
+    Optional<Booking> lockById(@Param("id") Long id);
+
+    // Seat holds
+    @Query("select b.id, b.holdExpiresAt from Booking b where b.status = :status")
+    List<Object[]> findIdAndHoldExpiryByStatus(@Param("status") Booking.Status status);
+
+    @Query("select b.id from Booking b where b.status = :status and b.holdExpiresAt < :before")
+    List<Long> findIdsByStatusAndHoldExpiresAtBefore(@Param("status") Booking.Status status,
+                                                     @Param("before") LocalDateTime before);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Booking b where b.id in :ids and b.status = :status order by b.id")
+    List<Booking> lockByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") Booking.Status status);
+
+    // Moves the id sequence past ids handed out while bookings used AUTO_INCREMENT
+    @Modifying
+    @Transactional
+    @Query(value = "update bookings_seq set next_val = greatest(next_val, " +
+            "(select coalesce(max(id), 0) from bookings) + 1 + :allocationSize)", nativeQuery = true)
+    int alignIdSequence(@Param("allocationSize") int allocationSize);
+
+    // Older schemas mapped status to a MySQL enum without the hold states
+    @Query(value = "select data_type from information_schema.columns where table_schema = database() " +
+            "and table_name = 'bookings' and column_name = 'status'", nativeQuery = true)
+    String findStatusColumnType();
+
+    @Modifying
+    @Transactional
+    @Query(value = "alter table bookings modify status varchar(20) not null", nativeQuery = true)
+    void widenStatusColumn();
 }
@@ -0,0 +1,42 @@
+package com.moviebooking.repository;
+
+import com.moviebooking.entity.BookingRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface BookingRollupRepository extends JpaRepository<BookingRollup, Long> {
+
+    List<BookingRollup> findByDayBetween(LocalDate from, LocalDate to);
+
+    List<BookingRollup> findByTheaterIdAndDayBetween(Long theaterId, LocalDate from, LocalDate to);
+
+    // Adds a delta to one rollup row, creating it on first use
+    @Modifying
+    @Query(value = "insert into booking_rollups (day, theater_id, movie_id, status, bookings, seats, revenue) " +
+            "values (:day, :theaterId, :movieId, :status, :bookings, :seats, :revenue) " +
+            "on duplicate key update bookings = bookings + values(bookings), seats = seats + values(seats), " +
+            "revenue = revenue + values(revenue)", nativeQuery = true)
+    int add(@Param("day") LocalDate day, @Param("theaterId") Long theaterId, @Param("movieId") Long movieId,
+            @Param("status") String status, @Param("bookings") long bookings, @Param("seats") long seats,
+            @Param("revenue") BigDecimal revenue);
+
+    // Backfill: recompute every rollup row from the bookings table
+    @Modifying
+    @Query(value = "delete from booking_rollups", nativeQuery = true)
+    int deleteAllRows();
+
+    @Modifying
+    @Query(value = "insert into booking_rollups (day, theater_id, movie_id, status, bookings, seats, revenue) " +
+            "select date(b.created_at), s.theater_id, s.movie_id, b.status, count(*), sum(b.seats_count), " +
+            "coalesce(sum(b.total_amount), 0) from bookings b join schedules s on s.id = b.schedule_id " +
+            "group by date(b.created_at), s.theater_id, s.movie_id, b.status", nativeQuery = true)
+    int insertFromBookings();
+}
@@ -2,6 +2,23 @@ package com.moviebooking.repository;
 
 import com.moviebooking.entity.EventLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 public interface EventLogRepository extends JpaRepository<EventLog, Long> {
+
+    // Served by idx_event_logs_type_at
+    @Query("select count(e) from EventLog e where e.eventType = :eventType and e.at >= :start and e.at < :end")
+    long countByEventTypeBetween(@Param("eventType") String eventType,
+                                 @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Per-day counts of the given event types, as (day, eventType, count)
+    @Query(value = "select date(at), event_type, count(*) from event_logs where event_type in (:eventTypes) " +
+            "and at >= :start and at < :end group by date(at), event_type", nativeQuery = true)
+    List<Object[]> countPerDay(@Param("eventTypes") Collection<String> eventTypes,
+                               @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 }
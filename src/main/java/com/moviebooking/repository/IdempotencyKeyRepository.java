@@ -0,0 +1,24 @@
+package com.moviebooking.repository;
+
+import com.moviebooking.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+
+    @Query("select k from IdempotencyKey k where k.userId = :userId and k.idemKey = :idemKey")
+    Optional<IdempotencyKey> find(@Param("userId") Long userId, @Param("idemKey") String idemKey);
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyKey k where k.createdAt < :before")
+    int deleteByCreatedAtBefore(@Param("before") LocalDateTime before);
+}
@@ -1,9 +1,13 @@
 package com.moviebooking.repository;
 
 import com.moviebooking.entity.Movie;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -12,4 +16,9 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
     List<Movie> findByTheaterIdAndActiveTrue(Long theaterId);
     List<Movie> findByTitleContainingIgnoreCaseAndActiveTrue(String title);
     long countByActiveTrue();
+
+    // Keyset page of active movies by (createdAt, id), theater fetched with them
+    @Query("select m from Movie m left join fetch m.theater where m.active = true " +
+            "and (m.createdAt > :after or (m.createdAt = :after and m.id > :afterId)) order by m.createdAt, m.id")
+    List<Movie> findActivePage(@Param("after") LocalDateTime after, @Param("afterId") long afterId, Pageable page);
 }
@@ -1,12 +1,24 @@
 package com.moviebooking.repository;
 
 import com.moviebooking.entity.Notification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
     List<Notification> findByUserIdOrderByCreatedAtDesc(Long userId);
     List<Notification> findByUserIdAndReadFlagFalseOrderByCreatedAtDesc(Long userId);
     long countByUserIdAndReadFlagFalse(Long userId);
+
+    // Keyset page, newest first, by (createdAt, id)
+    @Query("select n from Notification n where n.user.id = :userId and (:unreadOnly = false or n.readFlag = false) " +
+            "and (n.createdAt < :before or (n.createdAt = :before and n.id < :beforeId)) " +
+            "order by n.createdAt desc, n.id desc")
+    List<Notification> findPageForUser(@Param("userId") Long userId, @Param("unreadOnly") boolean unreadOnly,
+                                       @Param("before") Instant before, @Param("beforeId") long beforeId,
+                                       Pageable page);
 }
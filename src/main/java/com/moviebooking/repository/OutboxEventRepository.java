@@ -0,0 +1,28 @@
+package com.moviebooking.repository;
+
+import com.moviebooking.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Due rows, skipping any another dispatcher has locked
+    @Query(value = "select id from outbox_events where status = 'PENDING' and next_attempt_at <= :now " +
+            "order by id limit :limit for update skip locked", nativeQuery = true)
+    List<Long> lockDueIds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Leases claimed rows so they are not picked up again while being dispatched
+    @Modifying
+    @Query("update OutboxEvent e set e.nextAttemptAt = :until where e.id in :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("until") LocalDateTime until);
+
+    long countByStatus(OutboxEvent.Status status);
+}
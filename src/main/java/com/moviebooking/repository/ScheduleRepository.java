@@ -1,14 +1,62 @@
 package com.moviebooking.repository;
 
+import com.moviebooking.dto.ScheduleRow;
 import com.moviebooking.entity.Schedule;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
+  // Listing columns with the movie title and theater name joined in, instead of a lazy load per row
+  String ROW = "select s.id as id, m.id as movieId, m.title as movieTitle, t.id as theaterId, t.name as theaterName, " +
+      "s.showTime as showTime, s.price as price, s.availableSeats as availableSeats, s.totalSeats as totalSeats, " +
+      "s.active as active, s.createdAt as createdAt, s.screenNumber as screenNumber, " +
+      "s.additionalInfo as additionalInfo from Schedule s left join s.movie m left join s.theater t ";
+
+  // Half-open [from, until), ordered; the showtime index loads its window with it
+  @Query(ROW + "where s.active = true and s.showTime >= :from and s.showTime < :until order by s.showTime, s.id")
+  List<ScheduleRow> findActiveRowsFromUntil(@Param("from") LocalDateTime from, @Param("until") LocalDateTime until);
+
+  // Keyset page by (showTime, id)
+  @Query(ROW + "where s.active = true and (s.showTime > :after or (s.showTime = :after and s.id > :afterId)) " +
+      "order by s.showTime, s.id")
+  List<ScheduleRow> findRowPage(@Param("after") LocalDateTime after, @Param("afterId") long afterId, Pageable page);
+
+  // An owner's shows through theaters.owner_id and (theater_id, show_time); open bounds are null
+  @Query(ROW + "where t.owner.id = :ownerId and (:from is null or s.showTime >= :from) " +
+      "and (:to is null or s.showTime <= :to) and s.status in :statuses order by s.showTime, s.id")
+  List<ScheduleRow> findRowsByTheaterOwnerId(@Param("ownerId") Long ownerId, @Param("from") LocalDateTime from,
+      @Param("to") LocalDateTime to, @Param("statuses") Collection<Schedule.Status> statuses);
+
+  @Query(ROW + "where s.active = true and t.id = :theaterId")
+  List<ScheduleRow> findRowsByTheaterIdAndActiveTrue(@Param("theaterId") Long theaterId);
+
+  @Query(ROW + "where s.active = true and m.id = :movieId")
+  List<ScheduleRow> findRowsByMovieIdAndActiveTrue(@Param("movieId") Long movieId);
+
+  @Query(ROW + "where s.active = true and s.showTime between :start and :end order by s.showTime, s.id")
+  List<ScheduleRow> findRowsByShowTimeBetweenAndActiveTrue(@Param("start") LocalDateTime start,
+      @Param("end") LocalDateTime end);
+
+  @Query(ROW + "where s.active = true and t.id = :theaterId and s.showTime between :start and :end " +
+      "order by s.showTime, s.id")
+  List<ScheduleRow> findRowsByTheaterIdAndShowTimeBetweenAndActiveTrue(@Param("theaterId") Long theaterId,
+      @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+  // One schedule, for the showtime index to pick up an edit
+  @Query(ROW + "where s.id = :id")
+  Optional<ScheduleRow> findRowById(@Param("id") Long id);
+
   List<Schedule> findByActiveTrue();
 
   List<Schedule> findByTheaterId(Long theaterId);
@@ -25,4 +73,33 @@ public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
 
   List<Schedule> findByTheaterIdAndShowTimeBetweenAndActiveTrue(Long theaterId, LocalDateTime startTime,
       LocalDateTime endTime);
-}
\ No newline at end of file
+
+  // Total and sold seats of active shows in a window, for utilization without loading the schedules
+  @Query("select coalesce(sum(s.totalSeats), 0), coalesce(sum(s.totalSeats - s.availableSeats), 0) " +
+      "from Schedule s where s.active = true and s.showTime between :start and :end")
+  List<Object[]> sumSeatsByShowTimeBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+  // Seat inventory
+  @Query("select s.availableSeats from Schedule s where s.id = :id")
+  Integer findAvailableSeatsById(@Param("id") Long id);
+
+  @Query("select s.id, s.totalSeats, s.availableSeats from Schedule s where s.active = true")
+  List<Object[]> findActiveSeatTotals();
+
+  // Conditional decrement: updates nothing when the schedule is inactive or cannot cover the seats
+  @Modifying
+  @Transactional
+  @Query("update Schedule s set s.availableSeats = s.availableSeats - :seats, s.version = s.version + 1 " +
+      "where s.id = :id and s.active = true and s.availableSeats >= :seats")
+  int decrementAvailableSeats(@Param("id") Long id, @Param("seats") int seats);
+
+  @Modifying
+  @Transactional
+  @Query("update Schedule s set s.availableSeats = s.availableSeats + :seats, s.version = s.version + 1 where s.id = :id")
+  int incrementAvailableSeats(@Param("id") Long id, @Param("seats") int seats);
+
+  @Modifying
+  @Transactional
+  @Query("update Schedule s set s.availableSeats = :seats, s.version = s.version + 1 where s.id = :id")
+  int setAvailableSeats(@Param("id") Long id, @Param("seats") int seats);
+}
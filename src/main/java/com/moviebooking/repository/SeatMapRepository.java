@@ -0,0 +1,24 @@
+package com.moviebooking.repository;
+
+import com.moviebooking.entity.SeatMap;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface SeatMapRepository extends JpaRepository<SeatMap, Long> {
+
+    // Racing creators of the same map must not fail the booking transaction
+    @Modifying
+    @Transactional
+    @Query(value = "insert ignore into seat_maps (schedule_id, seat_rows, seat_columns, capacity, bits, version, updated_at) " +
+            "values (:scheduleId, :seatRows, :seatColumns, :capacity, :bits, 0, now())", nativeQuery = true)
+    int insertIfAbsent(@Param("scheduleId") Long scheduleId,
+                       @Param("seatRows") int seatRows,
+                       @Param("seatColumns") int seatColumns,
+                       @Param("capacity") int capacity,
+                       @Param("bits") byte[] bits);
+}
@@ -1,9 +1,13 @@
 package com.moviebooking.repository;
 
 import com.moviebooking.entity.Theater;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -12,4 +16,14 @@ public interface TheaterRepository extends JpaRepository<Theater, Long> {
     List<Theater> findByApprovedTrueAndActiveTrue();
     List<Theater> findByCityAndApprovedTrueAndActiveTrue(String city);
     List<Theater> findByOwnerId(Long ownerId);
+
+    // Keyset page by (createdAt, id): one owner's theaters, or approved and active ones
+    // (optionally in one city), or all of them
+    @Query("select t from Theater t where (:ownerId is null or t.owner.id = :ownerId) " +
+            "and (:approvedActive = false or (t.approved = true and t.active = true)) " +
+            "and (:city is null or t.city = :city) " +
+            "and (t.createdAt > :after or (t.createdAt = :after and t.id > :afterId)) order by t.createdAt, t.id")
+    List<Theater> findPage(@Param("ownerId") Long ownerId, @Param("approvedActive") boolean approvedActive,
+                           @Param("city") String city, @Param("after") LocalDateTime after,
+                           @Param("afterId") long afterId, Pageable page);
 }
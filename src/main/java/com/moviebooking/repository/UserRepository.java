@@ -1,10 +1,16 @@
 package com.moviebooking.repository;
 
-import com.moviebooking.entity.User;
 import com.moviebooking.entity.User.UserRole;
+import com.moviebooking.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,4 +25,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
     long countByRole(UserRole role);
 
     long countByRoleAndActiveTrue(UserRole role);
+
+    // Keyset page by (createdAt, id)
+    @Query("select u from User u where u.createdAt > :after or (u.createdAt = :after and u.id > :afterId) " +
+            "order by u.createdAt, u.id")
+    List<User> findPage(@Param("after") LocalDateTime after, @Param("afterId") long afterId, Pageable page);
+
+    // Tokens issued before the epoch second stop working
+    @Modifying
+    @Transactional
+    @Query("update User u set u.tokensValidAfter = :epochSecond where u.id = :id")
+    int revokeTokens(@Param("id") Long id, @Param("epochSecond") long epochSecond);
 }
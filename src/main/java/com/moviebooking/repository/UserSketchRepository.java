@@ -0,0 +1,41 @@
+package com.moviebooking.repository;
+
+import com.moviebooking.entity.UserSketch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserSketchRepository extends JpaRepository<UserSketch, Long> {
+
+    List<UserSketch> findByTheaterIdAndDayBetween(Long theaterId, LocalDate from, LocalDate to);
+
+    // Creates the row for a merge if it is missing; concurrent flushers then meet on its row lock
+    @Modifying
+    @Query(value = "insert ignore into user_sketches (day, theater_id, registers, updated_at) " +
+            "values (:day, :theaterId, :registers, now())", nativeQuery = true)
+    int insertIfAbsent(@Param("day") LocalDate day, @Param("theaterId") Long theaterId,
+                       @Param("registers") byte[] registers);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from UserSketch s where s.day = :day and s.theaterId = :theaterId")
+    Optional<UserSketch> lockByDayAndTheaterId(@Param("day") LocalDate day, @Param("theaterId") Long theaterId);
+
+    // Backfill source: who booked where, per day
+    @Query(value = "select min(created_at) from bookings", nativeQuery = true)
+    LocalDateTime findFirstBookingTime();
+
+    @Query(value = "select distinct date(b.created_at), s.theater_id, b.user_id from bookings b " +
+            "join schedules s on s.id = b.schedule_id where b.created_at >= :start and b.created_at < :end",
+            nativeQuery = true)
+    List<Object[]> findBookingUsers(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+}
@@ -0,0 +1,54 @@
+package com.moviebooking.security;
+
+import com.moviebooking.entity.User;
+
+import java.security.Principal;
+
+/**
+ * Caller identity taken from a verified token's claims. Enough for ownership
+ * and role checks; load the {@link User} only where its other fields are needed.
+ */
+public final class AuthPrincipal implements Principal {
+
+    private final Long id;
+    private final User.UserRole role;
+    private final String email;
+    // Token issue time, epoch seconds
+    private final long issuedAt;
+
+    public AuthPrincipal(Long id, User.UserRole role, String email, long issuedAt) {
+        this.id = id;
+        this.role = role;
+        this.email = email;
+        this.issuedAt = issuedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public User.UserRole getRole() {
+        return role;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    // Authentication.getName() resolves to the email
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public long getIssuedAt() {
+        return issuedAt;
+    }
+
+    public boolean hasRole(User.UserRole... roles) {
+        for (User.UserRole r : roles) {
+            if (role == r) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,46 @@
+package com.moviebooking.security;
+
+import com.moviebooking.entity.User;
+import com.moviebooking.service.AuthService;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * The caller of the current request, as resolved by the token filter in
+ * {@code SecurityConfig}. The full {@link User} is loaded at most once per
+ * request, and only when asked for.
+ */
+@Component
+@RequestScope
+public class CurrentUser {
+
+    private final AuthService authService;
+    private User user;
+    private boolean loaded;
+
+    public CurrentUser(AuthService authService) {
+        this.authService = authService;
+    }
+
+    /**
+     * Claims of the authenticated caller, or null for anonymous requests.
+     */
+    public AuthPrincipal principal() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getPrincipal() instanceof AuthPrincipal p ? p : null;
+    }
+
+    /**
+     * The authenticated caller's user row, or null for anonymous requests.
+     */
+    public User user() {
+        if (!loaded) {
+            AuthPrincipal p = principal();
+            user = p != null ? authService.loadUser(p.getId()) : null;
+            loaded = true;
+        }
+        return user;
+    }
+}
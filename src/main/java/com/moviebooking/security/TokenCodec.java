@@ -0,0 +1,205 @@
+package com.moviebooking.security;
+
+import com.moviebooking.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Issues and verifies HS256 tokens. Keys are configured as
+ * {@code auth.token.keys=kid:base64secret,...}; new tokens are signed with
+ * {@code auth.token.active-kid} and any listed key still verifies, so a key
+ * can be rotated by adding the new one, switching the active kid, and
+ * dropping the old one after the token TTL has passed.
+ *
+ * The payload stays standard Base64 JSON because the frontend reads it with atob.
+ *
+ * Stream tickets are the same format with a {@code use} claim and a lifetime of
+ * seconds; they are only accepted where a URL has to carry the credential, and
+ * a bearer token is never accepted in their place or the other way round.
+ */
+@Component
+public class TokenCodec {
+
+    private static final byte[] KID = claim("kid");
+    private static final byte[] USER_ID = claim("userId");
+    private static final byte[] EMAIL = claim("email");
+    private static final byte[] ROLE = claim("role");
+    private static final byte[] IAT = claim("iat");
+    private static final byte[] EXP = claim("exp");
+    private static final byte[] USE = claim("use");
+    private static final String STREAM = "stream";
+
+    private final Map<String, SecretKeySpec> keys = new LinkedHashMap<>();
+    private final String activeKid;
+    private final long ttlSeconds;
+    private final ThreadLocal<Map<String, Mac>> macs = ThreadLocal.withInitial(HashMap::new);
+
+    public TokenCodec(@Value("${auth.token.keys:}") String configuredKeys,
+                      @Value("${auth.token.active-kid:}") String activeKid,
+                      @Value("${auth.token.ttl-hours:24}") long ttlHours) {
+        for (String entry : configuredKeys.split(",")) {
+            int colon = entry.indexOf(':');
+            if (colon <= 0) continue;
+            String kid = entry.substring(0, colon).trim();
+            byte[] secret = Base64.getDecoder().decode(entry.substring(colon + 1).trim());
+            keys.put(kid, new SecretKeySpec(secret, "HmacSHA256"));
+        }
+        if (keys.isEmpty()) {
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            keys.put("local", new SecretKeySpec(secret, "HmacSHA256"));
+            System.out.println("auth.token.keys is not set; using a random signing key, tokens will not survive a restart.");
+        }
+        this.activeKid = keys.containsKey(activeKid) ? activeKid : keys.keySet().iterator().next();
+        this.ttlSeconds = ttlHours * 3600;
+    }
+
+    public String issue(User user) {
+        return issue(user.getId(), user.getEmail(), user.getRole(), ttlSeconds, null);
+    }
+
+    /**
+     * A ticket for opening an event stream as {@code principal}, e.g. with an
+     * EventSource, which cannot send headers.
+     */
+    public String issueStreamTicket(AuthPrincipal principal, long ticketTtlSeconds) {
+        return issue(principal.getId(), principal.getEmail(), principal.getRole(), ticketTtlSeconds, STREAM);
+    }
+
+    /**
+     * The principal named by a token, or null if it is malformed, signed with an
+     * unknown key, tampered with, or expired.
+     */
+    public AuthPrincipal verify(String token) {
+        return verify(token, null);
+    }
+
+    /**
+     * As {@link #verify}, for a ticket from {@link #issueStreamTicket}.
+     */
+    public AuthPrincipal verifyStreamTicket(String ticket) {
+        return verify(ticket, STREAM);
+    }
+
+    public long ttlSeconds() {
+        return ttlSeconds;
+    }
+
+    private String issue(Long userId, String email, User.UserRole role, long lifetimeSeconds, String use) {
+        long now = System.currentTimeMillis() / 1000;
+        String header = "{\"alg\":\"HS256\",\"typ\":\"JWT\",\"kid\":\"" + activeKid + "\"}";
+        String payload = "{\"userId\":" + userId +
+                ",\"email\":\"" + escape(email) + "\"" +
+                ",\"role\":\"" + role + "\"" +
+                (use != null ? ",\"use\":\"" + use + "\"" : "") +
+                ",\"iat\":" + now +
+                ",\"exp\":" + (now + lifetimeSeconds) + "}";
+        String signingInput = base64(header) + "." + base64(payload);
+        return signingInput + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(sign(activeKid, signingInput));
+    }
+
+    // use is the required use claim, null for an ordinary token
+    private AuthPrincipal verify(String token, String use) {
+        if (token == null) return null;
+        int first = token.indexOf('.');
+        int second = first < 0 ? -1 : token.indexOf('.', first + 1);
+        if (second < 0 || token.indexOf('.', second + 1) >= 0) return null;
+        try {
+            byte[] header = Base64.getDecoder().decode(token.substring(0, first));
+            String kid = stringClaim(header, KID);
+            if (kid == null || !keys.containsKey(kid)) return null;
+            byte[] expected = sign(kid, token.substring(0, second));
+            byte[] actual = Base64.getUrlDecoder().decode(token.substring(second + 1));
+            if (!MessageDigest.isEqual(expected, actual)) return null;
+
+            byte[] payload = Base64.getDecoder().decode(token.substring(first + 1, second));
+            long exp = longClaim(payload, EXP);
+            if (exp < 0 || exp <= System.currentTimeMillis() / 1000) return null;
+            String tokenUse = stringClaim(payload, USE);
+            if (use == null ? tokenUse != null : !use.equals(tokenUse)) return null;
+            long userId = longClaim(payload, USER_ID);
+            String role = stringClaim(payload, ROLE);
+            if (userId < 0 || role == null) return null;
+            return new AuthPrincipal(userId, User.UserRole.valueOf(role), stringClaim(payload, EMAIL),
+                    Math.max(0, longClaim(payload, IAT)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String kid, String signingInput) {
+        Mac mac = macs.get().computeIfAbsent(kid, k -> {
+            try {
+                Mac m = Mac.getInstance("HmacSHA256");
+                m.init(keys.get(k));
+                return m;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 unavailable", e);
+            }
+        });
+        return mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String base64(String json) {
+        return Base64.getEncoder().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String escape(String s) {
+        return s == null ? "" : s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static byte[] claim(String name) {
+        return ("\"" + name + "\":").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Claim scanners over the decoded JSON bytes; the token format is ours, so no general parser is needed
+
+    private static long longClaim(byte[] json, byte[] name) {
+        int at = indexOf(json, name);
+        if (at < 0) return -1;
+        long value = 0;
+        int digits = 0;
+        for (int i = at + name.length; i < json.length && json[i] >= '0' && json[i] <= '9'; i++) {
+            value = value * 10 + (json[i] - '0');
+            digits++;
+        }
+        return digits > 0 && digits < 19 ? value : -1;
+    }
+
+    private static String stringClaim(byte[] json, byte[] name) {
+        int at = indexOf(json, name);
+        int start = at + name.length;
+        if (at < 0 || start >= json.length || json[start] != '"') return null;
+        byte[] out = new byte[json.length - start];
+        int n = 0;
+        for (int i = start + 1; i < json.length; i++) {
+            byte b = json[i];
+            if (b == '"') return new String(out, 0, n, StandardCharsets.UTF_8);
+            if (b == '\\' && i + 1 < json.length) b = json[++i];
+            out[n++] = b;
+        }
+        return null;
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+}
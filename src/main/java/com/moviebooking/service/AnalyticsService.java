@@ -1,9 +1,11 @@
 package com.moviebooking.service;
 
-import com.moviebooking.entity.Booking;
-import com.moviebooking.entity.EventLog;
+import com.moviebooking.dto.BookingBucket;
+import com.moviebooking.dto.BookingTotals;
 import com.moviebooking.repository.BookingRepository;
 import com.moviebooking.repository.EventLogRepository;
+import com.moviebooking.service.analytics.UserSketchService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -11,109 +13,132 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class AnalyticsService {
+    private static final int CLOSED_DAYS_CACHED = 4000;
+
     private final BookingRepository bookingRepository;
     private final EventLogRepository eventLogRepository;
+    private final UserSketchService userSketches;
+
+    // Event logs are written behind, per node, so a day only counts as closed this many days after it
+    @Value("${analytics.closed-day-grace-days:2}")
+    private int closedDayGraceDays;
 
-    public AnalyticsService(BookingRepository bookingRepository, EventLogRepository eventLogRepository) {
+    // Approve/reject counts per closed day, most recently used last
+    private final Map<LocalDate, long[]> closedDays = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LocalDate, long[]> eldest) {
+            return size() > CLOSED_DAYS_CACHED;
+        }
+    };
+
+    public AnalyticsService(BookingRepository bookingRepository, EventLogRepository eventLogRepository,
+                            UserSketchService userSketches) {
         this.bookingRepository = bookingRepository;
         this.eventLogRepository = eventLogRepository;
+        this.userSketches = userSketches;
     }
 
     public Map<String, Object> getKpis(LocalDate from, LocalDate to) {
         LocalDateTime start = from.atStartOfDay();
         LocalDateTime end = to.atTime(LocalTime.MAX);
-        List<Booking> bookings = bookingRepository.findByCreatedAtBetween(start, end);
-
-        int count = bookings.size();
-        BigDecimal revenue = bookings.stream()
-                .map(Booking::getTotalAmount)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        long dau = bookings.stream().collect(Collectors.groupingBy(b -> b.getCreatedAt().toLocalDate())).size();
-        long mau = bookings.stream().collect(Collectors.groupingBy(b -> b.getCreatedAt().getMonth())).size();
-
-        List<EventLog> events = eventLogRepository.findAll();
-        long approves = events.stream()
-                .filter(e -> within(e.getAt(), start, end))
-                .filter(e -> Objects.equals(e.getEventType(), "APPROVE"))
-                .count();
-        long rejects = events.stream()
-                .filter(e -> within(e.getAt(), start, end))
-                .filter(e -> Objects.equals(e.getEventType(), "REJECT"))
-                .count();
+        BookingTotals totals = bookingRepository.totalsBetween(start, end);
+
+        long count = totals.getBookings();
+        BigDecimal revenue = totals.getRevenue();
+
+        long[] decisions = approvalCounts(from, to);
+        long approves = decisions[0];
+        long rejects = decisions[1];
         double approvalRate = (approves + rejects) == 0 ? 1.0 : (double) approves / (approves + rejects);
 
         Map<String, Object> kpis = new LinkedHashMap<>();
         kpis.put("bookings", Map.of("count", count));
         kpis.put("revenue", Map.of("total", revenue));
-        kpis.put("dau", dau);
-        kpis.put("mau", mau);
+        // distinct users (HyperLogLog estimates) on the last day, and the 7/30 days ending on it
+        kpis.putAll(userSketches.activeUsers(to, null));
+        kpis.put("uniqueUsers", userSketches.uniqueUsers(from, to, null));
         kpis.put("approvalRate", approvalRate);
         return Map.of("range", Map.of("from", from.toString(), "to", to.toString()), "kpis", kpis);
     }
 
     public List<Map<String, Object>> getSeriesBookings(LocalDate from, LocalDate to, String bucket) {
-        LocalDateTime start = from.atStartOfDay();
-        LocalDateTime end = to.atTime(LocalTime.MAX);
-        List<Booking> bookings = bookingRepository.findByCreatedAtBetween(start, end);
-        Map<String, Long> grouped;
-        if ("hour".equalsIgnoreCase(bucket)) {
-            grouped = bookings.stream().collect(Collectors.groupingBy(
-                    b -> b.getCreatedAt().withMinute(0).withSecond(0).withNano(0).toString(), Collectors.counting()
-            ));
-        } else {
-            grouped = bookings.stream().collect(Collectors.groupingBy(
-                    b -> b.getCreatedAt().toLocalDate().toString(), Collectors.counting()
-            ));
-        }
-        return toSeries(grouped);
+        List<Map<String, Object>> series = new ArrayList<>();
+        for (BookingBucket b : buckets(from, to, bucket)) series.add(point(b.getBucket(), b.getBookings()));
+        return series;
     }
 
     public List<Map<String, Object>> getSeriesRevenue(LocalDate from, LocalDate to, String bucket) {
-        LocalDateTime start = from.atStartOfDay();
-        LocalDateTime end = to.atTime(LocalTime.MAX);
-        List<Booking> bookings = bookingRepository.findByCreatedAtBetween(start, end);
-        Map<String, BigDecimal> grouped;
-        if ("hour".equalsIgnoreCase(bucket)) {
-            grouped = bookings.stream().collect(Collectors.groupingBy(
-                    b -> b.getCreatedAt().withMinute(0).withSecond(0).withNano(0).toString(),
-                    Collectors.reducing(BigDecimal.ZERO, Booking::getTotalAmount, BigDecimal::add)
-            ));
-        } else {
-            grouped = bookings.stream().collect(Collectors.groupingBy(
-                    b -> b.getCreatedAt().toLocalDate().toString(),
-                    Collectors.reducing(BigDecimal.ZERO, Booking::getTotalAmount, BigDecimal::add)
-            ));
+        List<Map<String, Object>> series = new ArrayList<>();
+        for (BookingBucket b : buckets(from, to, bucket)) series.add(point(b.getBucket(), b.getRevenue()));
+        return series;
+    }
+
+    // Buckets are labelled as before: 2024-05-01 for days, 2024-05-01T13:00 for hours
+    private List<BookingBucket> buckets(LocalDate from, LocalDate to, String bucket) {
+        String format = "hour".equalsIgnoreCase(bucket) ? "%Y-%m-%dT%H:00" : "%Y-%m-%d";
+        return bookingRepository.bucketsBetween(from.atStartOfDay(), to.atTime(LocalTime.MAX), format);
+    }
+
+    // Approve/reject counts over [from, to]. Days past the grace period cannot
+    // change any more, so their counts are cached; only recent days and days not
+    // seen before reach the database.
+    private long[] approvalCounts(LocalDate from, LocalDate to) {
+        LocalDate today = LocalDate.now();
+        LocalDate newestClosed = today.minusDays(Math.max(1, closedDayGraceDays));
+        LocalDate lastClosed = to.isAfter(newestClosed) ? newestClosed : to;
+        long[] total = new long[2];
+        if (!lastClosed.isBefore(from)) {
+            LocalDate firstMissing = null;
+            LocalDate lastMissing = null;
+            synchronized (closedDays) {
+                for (LocalDate d = from; !d.isAfter(lastClosed); d = d.plusDays(1)) {
+                    if (!closedDays.containsKey(d)) {
+                        if (firstMissing == null) firstMissing = d;
+                        lastMissing = d;
+                    }
+                }
+            }
+            if (firstMissing != null) loadClosedDays(firstMissing, lastMissing);
+            synchronized (closedDays) {
+                for (LocalDate d = from; !d.isAfter(lastClosed); d = d.plusDays(1)) {
+                    long[] day = closedDays.get(d);
+                    if (day == null) continue; // evicted meanwhile; only on ranges longer than the cache
+                    total[0] += day[0];
+                    total[1] += day[1];
+                }
+            }
+        }
+        LocalDate firstOpen = from.isAfter(newestClosed) ? from : newestClosed.plusDays(1);
+        if (!to.isBefore(firstOpen)) {
+            LocalDateTime start = firstOpen.atStartOfDay();
+            LocalDateTime end = to.plusDays(1).atStartOfDay();
+            total[0] += eventLogRepository.countByEventTypeBetween("APPROVE", start, end);
+            total[1] += eventLogRepository.countByEventTypeBetween("REJECT", start, end);
         }
-        return grouped.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(e -> {
-                    Map<String, Object> m = new LinkedHashMap<>();
-                    m.put("t", e.getKey());
-                    m.put("v", e.getValue());
-                    return m;
-                })
-                .collect(Collectors.toList());
+        return total;
     }
 
-    private boolean within(LocalDateTime at, LocalDateTime start, LocalDateTime end) {
-        return at != null && !at.isBefore(start) && !at.isAfter(end);
+    private void loadClosedDays(LocalDate first, LocalDate last) {
+        Map<LocalDate, long[]> loaded = new HashMap<>();
+        for (LocalDate d = first; !d.isAfter(last); d = d.plusDays(1)) loaded.put(d, new long[2]);
+        for (Object[] row : eventLogRepository.countPerDay(List.of("APPROVE", "REJECT"),
+                first.atStartOfDay(), last.plusDays(1).atStartOfDay())) {
+            LocalDate day = row[0] instanceof java.sql.Date d ? d.toLocalDate() : (LocalDate) row[0];
+            long[] counts = loaded.get(day);
+            if (counts != null) counts["APPROVE".equals(row[1]) ? 0 : 1] += ((Number) row[2]).longValue();
+        }
+        synchronized (closedDays) {
+            closedDays.putAll(loaded);
+        }
     }
 
-    private List<Map<String, Object>> toSeries(Map<String, Long> grouped) {
-        return grouped.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(e -> {
-                    Map<String, Object> m = new LinkedHashMap<>();
-                    m.put("t", e.getKey());
-                    m.put("v", e.getValue());
-                    return m;
-                })
-                .collect(Collectors.toList());
+    private static Map<String, Object> point(String t, Object v) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("t", t);
+        m.put("v", v);
+        return m;
     }
 }
@@ -5,12 +5,16 @@ import com.moviebooking.dto.LoginResponse;
 import com.moviebooking.dto.SignupRequest;
 import com.moviebooking.entity.User;
 import com.moviebooking.repository.UserRepository;
+import com.moviebooking.security.AuthPrincipal;
+import com.moviebooking.security.TokenCodec;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -20,6 +24,45 @@ public class AuthService {
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  private TokenCodec tokenCodec;
+
+  private static final class CachedUser {
+    final User user;
+    final long expiresAt;
+
+    CachedUser(User user, long expiresAt) {
+      this.user = user;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  @Value("${auth.principal-cache.ttl-seconds:60}")
+  private long principalTtlSeconds;
+
+  @Value("${auth.principal-cache.max-entries:10000}")
+  private int principalCacheSize;
+
+  @Value("${auth.stream-ticket.ttl-seconds:60}")
+  private long streamTicketTtlSeconds;
+
+  private long principalTtlMillis;
+
+  // User id -> user, least recently used evicted first
+  private Map<Long, CachedUser> users;
+
+  @PostConstruct
+  void initUserCache() {
+    principalTtlMillis = principalTtlSeconds * 1000;
+    int maxEntries = principalCacheSize;
+    users = new LinkedHashMap<>(256, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, CachedUser> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
   // Mock password storage - In production, use proper password hashing
   private final Map<String, String> passwordStore = new HashMap<String, String>() {
     {
@@ -105,51 +148,123 @@ public class AuthService {
   }
 
   /**
-   * Validate JWT token
+   * Verify a token's signature and expiry and return the caller from its claims.
+   * The user is then checked through the short-TTL cache: a token is refused once
+   * its user is gone, disabled, has another role, or revoked tokens issued before
+   * it, so revocation holds across restarts and nodes within one cache TTL.
    */
-  public User validateToken(String token) {
-    try {
-      // In production, use proper JWT validation
-      // For demo purposes, we'll decode the mock token
-      String[] parts = token.split("\\.");
-      if (parts.length != 3) {
-        return null;
-      }
+  public AuthPrincipal authenticate(String token) {
+    return checked(tokenCodec.verify(token));
+  }
 
-      String payload = new String(Base64.getDecoder().decode(parts[1]));
+  /**
+   * As {@link #authenticate}, for a stream ticket from {@link #issueStreamTicket}.
+   */
+  public AuthPrincipal authenticateStreamTicket(String ticket) {
+    return checked(tokenCodec.verifyStreamTicket(ticket));
+  }
 
-      // Simple parsing - in production use proper JSON parsing
-      if (payload.contains("\"userId\":")) {
-        String userIdStr = payload.substring(payload.indexOf("\"userId\":") + 9);
-        userIdStr = userIdStr.substring(0, userIdStr.indexOf(","));
-        Long userId = Long.parseLong(userIdStr);
+  /**
+   * A short-lived ticket that opens an event stream as {@code principal}, for
+   * clients that can only pass credentials in the URL.
+   */
+  public String issueStreamTicket(AuthPrincipal principal) {
+    return tokenCodec.issueStreamTicket(principal, streamTicketTtlSeconds);
+  }
 
-        Optional<User> userOptional = userRepository.findById(userId);
-        return userOptional.orElse(null);
-      }
+  public long streamTicketTtlSeconds() {
+    return streamTicketTtlSeconds;
+  }
 
+  private AuthPrincipal checked(AuthPrincipal principal) {
+    if (principal == null) {
+      return null;
+    }
+    User user = cachedUser(principal.getId());
+    if (user == null || !user.isActive() || user.getRole() != principal.getRole()) {
+      return null;
+    }
+    Long validAfter = user.getTokensValidAfter();
+    if (validAfter != null && principal.getIssuedAt() < validAfter) {
       return null;
+    }
+    return principal;
+  }
+
+  /**
+   * Validate JWT token and load its user. Users are cached by id for a short
+   * TTL so that polling endpoints do not read the users table on every call.
+   */
+  public User validateToken(String token) {
+    try {
+      AuthPrincipal principal = authenticate(token);
+      return principal != null ? loadUser(principal.getId()) : null;
     } catch (Exception e) {
       return null;
     }
   }
 
   /**
-   * Generate mock JWT token
+   * The user behind an authenticated principal, from the cache when fresh.
    */
-  private String generateToken(User user) {
-    // Generate a mock JWT-like token (3 parts separated by dots)
-    String header = Base64.getEncoder().encodeToString("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes());
+  public User loadUser(Long userId) {
+    User user = cachedUser(userId);
+    return user != null ? copy(user) : null;
+  }
 
-    long exp = System.currentTimeMillis() / 1000 + (24 * 60 * 60); // 24 hours
-    String payload = String.format(
-        "{\"userId\":%d,\"email\":\"%s\",\"role\":\"%s\",\"exp\":%d}",
-        user.getId(), user.getEmail(), user.getRole(), exp);
-    String encodedPayload = Base64.getEncoder().encodeToString(payload.getBytes());
+  /**
+   * Forget the cached copy of a user after a change, so the next request reads
+   * it again. Sessions stay valid; a changed role or a deactivation already
+   * refuses older tokens in {@link #checked}.
+   */
+  public void evictUser(Long userId) {
+    synchronized (users) {
+      users.remove(userId);
+    }
+  }
 
-    String signature = Base64.getEncoder().encodeToString("mock-signature".getBytes());
+  /**
+   * Sign a user out everywhere, e.g. after deactivation, deletion or a password
+   * or role change. Tokens issued before now stop working, here on the next
+   * request and on other nodes once their cached copy of the user expires.
+   */
+  public void revokeTokens(Long userId) {
+    userRepository.revokeTokens(userId, System.currentTimeMillis() / 1000);
+    evictUser(userId);
+  }
+
+  // The shared cached instance; never hand it out
+  private User cachedUser(Long userId) {
+    CachedUser cached;
+    synchronized (users) {
+      cached = users.get(userId);
+    }
+    long now = System.currentTimeMillis();
+    if (cached != null && cached.expiresAt > now) {
+      return cached.user;
+    }
+    Optional<User> userOptional = userRepository.findById(userId);
+    if (userOptional.isEmpty()) {
+      return null;
+    }
+    User user = copy(userOptional.get());
+    synchronized (users) {
+      users.put(userId, new CachedUser(user, now + principalTtlMillis));
+    }
+    return user;
+  }
+
+  // Callers get their own instance; the cached one is never handed out
+  private static User copy(User u) {
+    return new User(u.getId(), u.getEmail(), u.getPassword(), u.getFirstName(), u.getLastName(),
+        u.getRole(), u.isActive(), u.getCreatedAt(), u.getTokensValidAfter());
+  }
 
-    return header + "." + encodedPayload + "." + signature;
+  /**
+   * Generate an HMAC-signed token
+   */
+  private String generateToken(User user) {
+    return tokenCodec.issue(user);
   }
 
   /**
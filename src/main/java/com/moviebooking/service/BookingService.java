@@ -0,0 +1,361 @@
+package com.moviebooking.service;
+
+import com.moviebooking.entity.Booking;
+import com.moviebooking.entity.Schedule;
+import com.moviebooking.entity.User;
+import com.moviebooking.repository.BookingRepository;
+import com.moviebooking.repository.ScheduleRepository;
+import com.moviebooking.service.analytics.BookingRollupService;
+import com.moviebooking.service.analytics.UserSketchService;
+import com.moviebooking.service.outbox.OutboxService;
+import com.moviebooking.service.seat.SeatHoldService;
+import com.moviebooking.service.seat.SeatMapService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Booking writes. Each attempt runs in its own transaction so that lock and
+ * version conflicts can be retried from a clean state.
+ */
+@Service
+public class BookingService {
+
+    private final BookingRepository bookingRepository;
+    private final ScheduleRepository scheduleRepository;
+    private final SeatInventoryService seatInventory;
+    private final SeatMapService seatMapService;
+    private final SeatHoldService seatHoldService;
+    private final OutboxService outboxService;
+    private final IdempotencyService idempotencyService;
+    private final BookingRollupService rollupService;
+    private final UserSketchService userSketches;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${booking.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${booking.retry.backoff-ms:20}")
+    private long backoffMs;
+
+    @Value("${booking.hold.minutes:10}")
+    private int defaultHoldMinutes;
+
+    @Value("${booking.hold.max-minutes:30}")
+    private int maxHoldMinutes;
+
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong soldOut = new AtomicLong();
+
+    public BookingService(BookingRepository bookingRepository,
+                          ScheduleRepository scheduleRepository,
+                          SeatInventoryService seatInventory,
+                          SeatMapService seatMapService,
+                          SeatHoldService seatHoldService,
+                          OutboxService outboxService,
+                          IdempotencyService idempotencyService,
+                          BookingRollupService rollupService,
+                          UserSketchService userSketches,
+                          PlatformTransactionManager transactionManager) {
+        this.bookingRepository = bookingRepository;
+        this.scheduleRepository = scheduleRepository;
+        this.seatInventory = seatInventory;
+        this.seatMapService = seatMapService;
+        this.seatHoldService = seatHoldService;
+        this.outboxService = outboxService;
+        this.idempotencyService = idempotencyService;
+        this.rollupService = rollupService;
+        this.userSketches = userSketches;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Book {@code seats} by label, or {@code seatsCount} best-available seats when
+     * no labels are given. A repeated {@code idempotencyKey} returns the booking
+     * made by the first request instead of booking again, or 422 when the first
+     * request asked for something else.
+     */
+    public Booking create(User user, Long scheduleId, int seatsCount, Collection<String> seats,
+                          String idempotencyKey) {
+        return reserve(user, scheduleId, seatsCount, seats, null, idempotencyKey);
+    }
+
+    /**
+     * Take seats out of sale for a few minutes without booking them. The hold is
+     * turned into a booking by {@link #confirm}, or released when it expires.
+     */
+    public Booking hold(User user, Long scheduleId, int seatsCount, Collection<String> seats, Integer minutes,
+                        String idempotencyKey) {
+        int holdMinutes = minutes != null ? Math.max(1, Math.min(minutes, maxHoldMinutes)) : defaultHoldMinutes;
+        return reserve(user, scheduleId, seatsCount, seats, LocalDateTime.now().plusMinutes(holdMinutes),
+                idempotencyKey);
+    }
+
+    /**
+     * Book several lines in one transaction: one seat counter update per schedule,
+     * one batched insert for the bookings and a single outbox event.
+     */
+    public List<Booking> createBatch(User user, List<BatchLine> lines) {
+        List<Collection<String>> labels = new ArrayList<>(lines.size());
+        // Sorted so that concurrent batches lock schedule rows in the same order
+        Map<Long, Integer> seatsBySchedule = new TreeMap<>();
+        for (BatchLine line : lines) {
+            Collection<String> l = normalize(line.seats);
+            labels.add(l);
+            seatsBySchedule.merge(line.scheduleId, l != null ? l.size() : line.seatsCount, Integer::sum);
+        }
+        return withRetry(() -> transactionTemplate.execute(status -> {
+            for (Map.Entry<Long, Integer> e : seatsBySchedule.entrySet()) {
+                if (!seatInventory.tryAcquire(e.getKey(), e.getValue())) {
+                    throw unavailable(e.getKey(), " " + e.getKey());
+                }
+            }
+            // one read for all the rows the decrements locked
+            Map<Long, Schedule> schedules = new HashMap<>();
+            for (Schedule s : scheduleRepository.findAllById(seatsBySchedule.keySet())) {
+                seatInventory.settled(s.getId(), s.getAvailableSeats());
+                schedules.put(s.getId(), s);
+            }
+
+            List<Booking> bookings = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                Schedule schedule = schedules.get(lines.get(i).scheduleId);
+                Collection<String> l = labels.get(i);
+                int count = l != null ? l.size() : lines.get(i).seatsCount;
+                List<String> sold = seatMapService.sell(schedule, l, count, seatsBySchedule.get(schedule.getId()));
+
+                Booking booking = new Booking();
+                booking.setUser(user);
+                booking.setSchedule(schedule);
+                booking.setSeatsCount(count);
+                booking.setSeatNumbers(String.join(",", sold));
+                booking.setTotalAmount(schedule.getPrice().multiply(BigDecimal.valueOf(count)));
+                booking.setStatus(Booking.Status.CREATED);
+                bookings.add(booking);
+            }
+            List<Booking> saved = bookingRepository.saveAll(bookings);
+            for (Booking b : saved) {
+                rollupService.added(b);
+                userSketches.record(b);
+            }
+            outboxService.bookingsConfirmed(saved.stream().map(Booking::getId).toList());
+            return saved;
+        }));
+    }
+
+    public Booking confirm(User user, Long bookingId) {
+        return withRetry(() -> transactionTemplate.execute(status -> {
+            Booking booking = lockOwned(user, bookingId);
+            if (booking.getStatus() == Booking.Status.CREATED || booking.getStatus() == Booking.Status.PAID) {
+                return booking;
+            }
+            if (booking.getStatus() != Booking.Status.HELD
+                    || !booking.getHoldExpiresAt().isAfter(LocalDateTime.now())) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Hold has expired");
+            }
+            seatMapService.commitHeld(booking.getSchedule().getId(), seatList(booking));
+            booking.setStatus(Booking.Status.CREATED);
+            rollupService.moved(booking, Booking.Status.HELD);
+            booking.setHoldExpiresAt(null);
+            outboxService.bookingConfirmed(booking.getId());
+            return bookingRepository.save(booking);
+        }));
+    }
+
+    public Booking cancel(User user, Long bookingId) {
+        return withRetry(() -> transactionTemplate.execute(status -> {
+            Booking booking = lockOwned(user, bookingId);
+            if (booking.getStatus() == Booking.Status.CANCELLED || booking.getStatus() == Booking.Status.EXPIRED) {
+                return booking;
+            }
+            Long scheduleId = booking.getSchedule().getId();
+            seatInventory.release(scheduleId, booking.getSeatsCount());
+            seatMapService.free(scheduleId, seatList(booking), booking.getStatus() != Booking.Status.HELD);
+            Booking.Status from = booking.getStatus();
+            booking.setStatus(Booking.Status.CANCELLED);
+            rollupService.moved(booking, from);
+            booking.setHoldExpiresAt(null);
+            return bookingRepository.save(booking);
+        }));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("conflicts", conflicts.get());
+        m.put("seatConflicts", seatInventory.conflicts());
+        m.put("retries", retries.get());
+        m.put("soldOut", soldOut.get());
+        m.put("holdsExpired", seatHoldService.expiredCount());
+        m.put("outbox", outboxService.stats());
+        return m;
+    }
+
+    public static class BatchLine {
+        public final Long scheduleId;
+        public final int seatsCount;
+        public final Collection<String> seats;
+
+        public BatchLine(Long scheduleId, int seatsCount, Collection<String> seats) {
+            this.scheduleId = scheduleId;
+            this.seatsCount = seatsCount;
+            this.seats = seats;
+        }
+    }
+
+    public static List<String> seatList(Booking booking) {
+        String seats = booking.getSeatNumbers();
+        if (seats == null || seats.isBlank()) return List.of();
+        return Arrays.asList(seats.split(","));
+    }
+
+    /**
+     * The fingerprint an Idempotency-Key is stored with for a create or a hold;
+     * hold and create share the keys, so the operation is part of it.
+     */
+    public static String fingerprint(boolean hold, Long scheduleId, int seatsCount, Collection<String> seats) {
+        return IdempotencyService.fingerprint(hold ? "HOLD" : "BOOK", scheduleId, seatsCount, seats);
+    }
+
+    // Shared by create and hold; a null holdUntil books the seats outright
+    private Booking reserve(User user, Long scheduleId, int seatsCount, Collection<String> seats,
+                            LocalDateTime holdUntil, String idempotencyKey) {
+        String fingerprint = idempotencyKey != null
+                ? fingerprint(holdUntil != null, scheduleId, seatsCount, seats)
+                : null;
+        if (idempotencyKey != null) {
+            Booking earlier = replay(user, idempotencyKey, fingerprint);
+            if (earlier != null) return earlier;
+        }
+        try {
+            return book(user, scheduleId, seatsCount, seats, holdUntil, idempotencyKey, fingerprint);
+        } catch (DataIntegrityViolationException e) {
+            // lost the race to a concurrent retry carrying the same key
+            Booking earlier = idempotencyKey != null ? replay(user, idempotencyKey, fingerprint) : null;
+            if (earlier == null) throw e;
+            return earlier;
+        }
+    }
+
+    private Booking replay(User user, String idempotencyKey, String fingerprint) {
+        return idempotencyService.findBookingId(user.getId(), idempotencyKey, fingerprint)
+                .flatMap(bookingRepository::findById)
+                .orElse(null);
+    }
+
+    private Booking book(User user, Long scheduleId, int seatsCount, Collection<String> seats,
+                         LocalDateTime holdUntil, String idempotencyKey, String fingerprint) {
+        Collection<String> labels = normalize(seats);
+        int count = labels != null ? labels.size() : seatsCount;
+        return withRetry(() -> transactionTemplate.execute(status -> {
+            // The conditional decrement is the first statement; the row it locked is read afterwards
+            if (!seatInventory.tryAcquire(scheduleId, count)) {
+                throw unavailable(scheduleId, "");
+            }
+            Schedule schedule = acquired(scheduleId);
+            List<String> taken = holdUntil != null
+                    ? seatMapService.hold(schedule, labels, count)
+                    : seatMapService.sell(schedule, labels, count);
+
+            Booking booking = new Booking();
+            booking.setUser(user);
+            booking.setSchedule(schedule);
+            booking.setSeatsCount(count);
+            booking.setSeatNumbers(String.join(",", taken));
+            booking.setTotalAmount(schedule.getPrice().multiply(BigDecimal.valueOf(count)));
+            booking.setStatus(holdUntil != null ? Booking.Status.HELD : Booking.Status.CREATED);
+            booking.setHoldExpiresAt(holdUntil);
+            Booking saved = bookingRepository.save(booking);
+            rollupService.added(saved);
+            userSketches.record(saved);
+            if (idempotencyKey != null) {
+                idempotencyService.record(user.getId(), idempotencyKey, fingerprint, saved.getId());
+            }
+            if (holdUntil != null) {
+                seatHoldService.track(saved.getId(), holdUntil);
+            } else {
+                outboxService.bookingConfirmed(saved.getId());
+            }
+            return saved;
+        }));
+    }
+
+    // Read after the decrement, so the seat count is this transaction's own result
+    private Schedule acquired(Long scheduleId) {
+        Schedule schedule = scheduleRepository.findById(scheduleId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Schedule not found"));
+        seatInventory.settled(scheduleId, schedule.getAvailableSeats());
+        return schedule;
+    }
+
+    // Why tryAcquire said no; only this failure path reads the schedule
+    private ResponseStatusException unavailable(Long scheduleId, String label) {
+        Schedule schedule = scheduleRepository.findById(scheduleId).orElse(null);
+        if (schedule == null) return new ResponseStatusException(HttpStatus.NOT_FOUND, "Schedule" + label + " not found");
+        if (!schedule.isActive()) return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Schedule" + label + " inactive");
+        soldOut.incrementAndGet();
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                label.isEmpty() ? "Not enough seats available" : "Not enough seats available for schedule" + label);
+    }
+
+    private Booking lockOwned(User user, Long bookingId) {
+        Booking booking = bookingRepository.lockById(bookingId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Booking not found"));
+        if (!booking.getUser().getId().equals(user.getId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Forbidden");
+        }
+        return booking;
+    }
+
+    private static Collection<String> normalize(Collection<String> seats) {
+        if (seats == null || seats.isEmpty()) return null;
+        Collection<String> labels = new LinkedHashSet<>();
+        for (String seat : seats) {
+            if (seat != null && !seat.isBlank()) labels.add(seat.trim().toUpperCase());
+        }
+        return labels.isEmpty() ? null : labels;
+    }
+
+    private <T> T withRetry(Supplier<T> attempt) {
+        for (int i = 1; ; i++) {
+            try {
+                return attempt.get();
+            } catch (ConcurrencyFailureException e) {
+                conflicts.incrementAndGet();
+                if (i >= maxAttempts) throw e;
+                retries.incrementAndGet();
+                sleepWithJitter(i);
+            }
+        }
+    }
+
+    private void sleepWithJitter(int attempt) {
+        long base = backoffMs << (attempt - 1);
+        try {
+            Thread.sleep(base + ThreadLocalRandom.current().nextLong(base + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while retrying");
+        }
+    }
+}
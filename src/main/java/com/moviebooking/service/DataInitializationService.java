@@ -1,6 +1,8 @@
 package com.moviebooking.service;
 
+import com.moviebooking.entity.Booking;
 import com.moviebooking.entity.User;
+import com.moviebooking.repository.BookingRepository;
 import com.moviebooking.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
@@ -19,11 +21,37 @@ public class DataInitializationService implements CommandLineRunner {
   @Autowired
   private AuthService authService;
 
+  @Autowired
+  private BookingRepository bookingRepository;
+
   @Override
   public void run(String... args) throws Exception {
+    upgradeBookingStatusColumn();
+    alignBookingIdSequence();
     initializeUsers();
   }
 
+  // ddl-auto=update never changes an existing column, so widen the old enum once
+  private void upgradeBookingStatusColumn() {
+    try {
+      if ("enum".equalsIgnoreCase(bookingRepository.findStatusColumnType())) {
+        bookingRepository.widenStatusColumn();
+        System.out.println("Widened bookings.status to varchar(20).");
+      }
+    } catch (Exception e) {
+      System.out.println("Could not check bookings.status column: " + e.getMessage());
+    }
+  }
+
+  // Booking ids used to come from AUTO_INCREMENT; the sequence must start above them
+  private void alignBookingIdSequence() {
+    try {
+      bookingRepository.alignIdSequence(Booking.ID_ALLOCATION_SIZE);
+    } catch (Exception e) {
+      System.out.println("Could not align bookings_seq: " + e.getMessage());
+    }
+  }
+
   private void initializeUsers() {
     // Check if users already exist
     if (userRepository.count() > 0) {
@@ -26,6 +26,11 @@ public class EmailService {
 
     @Async
     public void sendEmail(String to, String subject, String body) {
+        send(to, subject, body);
+    }
+
+    // Blocking send, for callers that retry on failure themselves
+    public void send(String to, String subject, String body) {
         SimpleMailMessage message = new SimpleMailMessage();
         message.setFrom(fromEmail);
         message.setTo(to);
@@ -0,0 +1,147 @@
+package com.moviebooking.service;
+
+import com.moviebooking.entity.IdempotencyKey;
+import com.moviebooking.repository.IdempotencyKeyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Idempotency-Key bookkeeping for booking POSTs. The table, unique on
+ * (user, key), is the source of truth; a bounded LRU in front of it keeps
+ * the response of recent requests so that a client retry is answered
+ * without a query. Each key also keeps a fingerprint of the request that
+ * first used it; a replay asking for something else is refused with 422
+ * instead of being answered with the first booking.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final class Entry {
+        final String fingerprint;
+        final Object response;
+        final long storedAt;
+
+        Entry(String fingerprint, Object response, long storedAt) {
+            this.fingerprint = fingerprint;
+            this.response = response;
+            this.storedAt = storedAt;
+        }
+    }
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final long ttlMillis;
+    private final Map<String, Entry> recent;
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              @Value("${booking.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                              @Value("${booking.idempotency.cache-size:10000}") int cacheSize) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.ttlMillis = ttlMinutes * 60_000;
+        this.recent = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * What a booking request asks for: the operation, the schedule and either
+     * the seat labels, in any order, or the seat count.
+     */
+    public static String fingerprint(String operation, Long scheduleId, int seatsCount, Collection<String> seats) {
+        TreeSet<String> labels = new TreeSet<>();
+        if (seats != null) {
+            for (String seat : seats) {
+                if (seat != null && !seat.isBlank()) labels.add(seat.trim().toUpperCase());
+            }
+        }
+        String raw = operation + "|" + scheduleId + "|" + (labels.isEmpty() ? String.valueOf(seatsCount) : String.join(",", labels));
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest(raw.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The response sent for an earlier request with this key, if still cached.
+     * Throws 422 when that request asked for something else.
+     */
+    public Object cachedResponse(Long userId, String key, String fingerprint) {
+        String k = cacheKey(userId, key);
+        synchronized (recent) {
+            Entry e = recent.get(k);
+            if (e == null) return null;
+            if (System.currentTimeMillis() - e.storedAt > ttlMillis) {
+                recent.remove(k);
+                return null;
+            }
+            check(e.fingerprint, fingerprint);
+            return e.response;
+        }
+    }
+
+    public void cacheResponse(Long userId, String key, String fingerprint, Object response) {
+        synchronized (recent) {
+            recent.put(cacheKey(userId, key), new Entry(fingerprint, response, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * The booking made by an earlier request with this key. Throws 422 when
+     * that request asked for something else.
+     */
+    public Optional<Long> findBookingId(Long userId, String key, String fingerprint) {
+        return idempotencyKeyRepository.find(userId, key).map(row -> {
+            check(row.getFingerprint(), fingerprint);
+            return row.getBookingId();
+        });
+    }
+
+    /**
+     * Claim the key for a booking inside the booking transaction. A concurrent
+     * request with the same key fails here on the unique index and rolls back.
+     */
+    public void record(Long userId, String key, String fingerprint, Long bookingId) {
+        IdempotencyKey row = new IdempotencyKey();
+        row.setUserId(userId);
+        row.setIdemKey(key);
+        row.setFingerprint(fingerprint);
+        row.setBookingId(bookingId);
+        idempotencyKeyRepository.saveAndFlush(row);
+    }
+
+    // Hourly; keys are only honoured for the TTL anyway
+    @Scheduled(fixedDelay = 3_600_000, initialDelay = 60_000)
+    public void purgeExpired() {
+        idempotencyKeyRepository.deleteByCreatedAtBefore(LocalDateTime.now().minusNanos(ttlMillis * 1_000_000));
+    }
+
+    // Keys stored before fingerprints were kept cannot be checked and are honoured as before
+    private static void check(String stored, String requested) {
+        if (stored != null && !stored.equals(requested)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private static String cacheKey(Long userId, String key) {
+        return userId + ":" + key;
+    }
+}
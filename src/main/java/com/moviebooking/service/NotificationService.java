@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.moviebooking.entity.Notification;
 import com.moviebooking.entity.User;
 import com.moviebooking.repository.NotificationRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -47,6 +48,14 @@ public class NotificationService {
         return notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
     }
 
+    /**
+     * Up to {@code limit} notifications older than ({@code before}, {@code beforeId}), newest first.
+     */
+    @Transactional(readOnly = true)
+    public List<Notification> getPageForUser(Long userId, boolean unreadOnly, Instant before, long beforeId, int limit) {
+        return notificationRepository.findPageForUser(userId, unreadOnly, before, beforeId, PageRequest.of(0, limit));
+    }
+
     @Transactional
     public void markRead(Long id, Long userId) {
         notificationRepository.findById(id).ifPresent(n -> {
@@ -0,0 +1,203 @@
+package com.moviebooking.service;
+
+import com.moviebooking.entity.Booking;
+import com.moviebooking.repository.BookingRepository;
+import com.moviebooking.repository.ScheduleRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-schedule seat counters. An in-memory CAS counter rejects sold-out requests
+ * without touching MySQL; admitted requests then run a conditional decrement on
+ * schedules.available_seats, which stays the durable guard against overselling.
+ * Counters follow the row value each committed booking saw, and a counter that
+ * says sold out is re-read from the row now and then, so seats given back on
+ * another node come back into sale here too.
+ */
+@Service
+public class SeatInventoryService {
+
+    private final ScheduleRepository scheduleRepository;
+    private final BookingRepository bookingRepository;
+
+    @Value("${booking.inventory.recheck-ms:1000}")
+    private long recheckMs;
+
+    // Seats left per schedule id, as last seen by this node
+    private final Map<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+    // When a sold-out counter was last compared with the row, per schedule id
+    private final Map<Long, Long> rechecked = new ConcurrentHashMap<>();
+    // Counter admitted the seats but the conditional decrement found them gone
+    private final AtomicLong conflicts = new AtomicLong();
+
+    public SeatInventoryService(ScheduleRepository scheduleRepository, BookingRepository bookingRepository) {
+        this.scheduleRepository = scheduleRepository;
+        this.bookingRepository = bookingRepository;
+    }
+
+    /**
+     * Take seats from an active schedule if enough are left. Must run inside the
+     * booking transaction; the in-memory counter is handed back if it rolls back.
+     * False when the schedule is missing, inactive or sold out.
+     */
+    public boolean tryAcquire(Long scheduleId, int seats) {
+        AtomicInteger counter = counter(scheduleId);
+        if (counter == null) return false;
+        if (!take(counter, seats)) {
+            // the counter may be behind seats released on another node
+            if (!recheck(scheduleId)) return false;
+            counter = counter(scheduleId);
+            if (counter == null || !take(counter, seats)) return false;
+        }
+        onRollback(() -> restore(scheduleId, seats));
+        if (scheduleRepository.decrementAvailableSeats(scheduleId, seats) == 0) {
+            // another node or an admin edit moved the row; reload on next use
+            conflicts.incrementAndGet();
+            evict(scheduleId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Seats left in the row as read after this transaction's decrement, while it
+     * still holds the row lock; the counter takes that value once it commits.
+     */
+    public void settled(Long scheduleId, int seatsLeft) {
+        afterCommit(() -> {
+            AtomicInteger counter = available.get(scheduleId);
+            if (counter != null) counter.set(seatsLeft);
+        });
+    }
+
+    public long conflicts() {
+        return conflicts.get();
+    }
+
+    /**
+     * Give seats back to a schedule. The row is updated in the caller's transaction
+     * and the in-memory counter follows once it commits.
+     */
+    public void release(Long scheduleId, int seats) {
+        scheduleRepository.incrementAvailableSeats(scheduleId, seats);
+        afterCommit(() -> restore(scheduleId, seats));
+    }
+
+    public int available(Long scheduleId) {
+        AtomicInteger counter = counter(scheduleId);
+        return counter != null ? counter.get() : 0;
+    }
+
+    /**
+     * Seats left as this node's counter has them, or null when it has not been loaded.
+     */
+    public Integer peek(Long scheduleId) {
+        AtomicInteger counter = available.get(scheduleId);
+        return counter != null ? counter.get() : null;
+    }
+
+    /**
+     * Drop the cached counter so the next booking reloads it, e.g. after an admin edit.
+     */
+    public void evict(Long scheduleId) {
+        available.remove(scheduleId);
+        rechecked.remove(scheduleId);
+    }
+
+    /**
+     * Recompute every active schedule's counter as total seats minus seats taken by
+     * live bookings and holds, and write the result back to the schedules table.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Map<Long, Integer> booked = new HashMap<>();
+        for (Object[] row : bookingRepository.sumSeatsByScheduleExcludingStatuses(
+                List.of(Booking.Status.CANCELLED, Booking.Status.EXPIRED))) {
+            booked.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        for (Object[] row : scheduleRepository.findActiveSeatTotals()) {
+            Long id = (Long) row[0];
+            int total = (Integer) row[1];
+            int stored = (Integer) row[2];
+            int left = Math.max(0, total - booked.getOrDefault(id, 0));
+            available.put(id, new AtomicInteger(left));
+            if (left != stored) {
+                scheduleRepository.setAvailableSeats(id, left);
+            }
+        }
+    }
+
+    private void restore(Long scheduleId, int seats) {
+        AtomicInteger counter = available.get(scheduleId);
+        if (counter != null) counter.addAndGet(seats);
+    }
+
+    private static boolean take(AtomicInteger counter, int seats) {
+        while (true) {
+            int current = counter.get();
+            if (current < seats) return false;
+            if (counter.compareAndSet(current, current - seats)) return true;
+        }
+    }
+
+    // At most once per recheck-ms per schedule, so sold-out traffic still stays off the database
+    private boolean recheck(Long scheduleId) {
+        long now = System.currentTimeMillis();
+        Long last = rechecked.get(scheduleId);
+        if (last != null && now - last < recheckMs) return false;
+        if (last == null ? rechecked.putIfAbsent(scheduleId, now) != null : !rechecked.replace(scheduleId, last, now)) {
+            return false;
+        }
+        Integer stored = scheduleRepository.findAvailableSeatsById(scheduleId);
+        if (stored == null) {
+            available.remove(scheduleId);
+            return false;
+        }
+        AtomicInteger counter = available.computeIfAbsent(scheduleId, k -> new AtomicInteger(stored));
+        counter.set(stored);
+        return true;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) action.run();
+            }
+        });
+    }
+
+    private AtomicInteger counter(Long scheduleId) {
+        AtomicInteger counter = available.get(scheduleId);
+        if (counter != null) return counter;
+        Integer stored = scheduleRepository.findAvailableSeatsById(scheduleId);
+        if (stored == null) return null;
+        AtomicInteger existing = available.putIfAbsent(scheduleId, new AtomicInteger(stored));
+        return existing != null ? existing : available.get(scheduleId);
+    }
+}
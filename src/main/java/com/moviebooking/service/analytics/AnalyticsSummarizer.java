@@ -0,0 +1,142 @@
+package com.moviebooking.service.analytics;
+
+import com.moviebooking.entity.Booking;
+import com.moviebooking.entity.BookingRollup;
+import com.moviebooking.repository.MovieRepository;
+import com.moviebooking.repository.TheaterRepository;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the analytics dashboard payload shared by the REST endpoints and the
+ * live stream.
+ */
+@Component
+public class AnalyticsSummarizer {
+
+    private final MovieRepository movieRepository;
+    private final TheaterRepository theaterRepository;
+
+    public AnalyticsSummarizer(MovieRepository movieRepository, TheaterRepository theaterRepository) {
+        this.movieRepository = movieRepository;
+        this.theaterRepository = theaterRepository;
+    }
+
+    /**
+     * Dashboard payload (kpis, trends, tops) from rollup rows, in one pass; a
+     * 30-day dashboard reads a few hundred rows. Seat totals feed utilization.
+     */
+    public Map<String, Object> summarize(List<BookingRollup> rows, long totalSeats, long soldSeats) {
+        BigDecimal revenue = BigDecimal.ZERO;
+        long totalBookings = 0;
+        long cancelled = 0;
+        long completed = 0;
+        Map<LocalDate, long[]> statusPerDay = new TreeMap<>(); // completed, cancelled, pending
+        Map<LocalDate, BigDecimal> revenueByDay = new TreeMap<>();
+        Map<Long, BigDecimal> movieRevenue = new HashMap<>();
+        Map<Long, BigDecimal> theaterRevenue = new HashMap<>();
+        for (BookingRollup r : rows) {
+            long n = r.getBookings();
+            if (n == 0) continue;
+            boolean paid = r.getStatus() == Booking.Status.PAID;
+            BigDecimal amt = paid ? r.getRevenue() : BigDecimal.ZERO;
+            totalBookings += n;
+            long[] counts = statusPerDay.computeIfAbsent(r.getDay(), k -> new long[3]);
+            switch (r.getStatus()) {
+                case PAID -> { completed += n; counts[0] += n; }
+                case CANCELLED -> { cancelled += n; counts[1] += n; }
+                default -> counts[2] += n;
+            }
+            if (paid) {
+                revenue = revenue.add(amt);
+                revenueByDay.merge(r.getDay(), amt, BigDecimal::add);
+            }
+            movieRevenue.merge(r.getMovieId(), amt, BigDecimal::add);
+            theaterRevenue.merge(r.getTheaterId(), amt, BigDecimal::add);
+        }
+
+        // Trends by day
+        List<Map<String, Object>> trend = new ArrayList<>();
+        List<Map<String, Object>> statusTrend = new ArrayList<>();
+        for (Map.Entry<LocalDate, long[]> e : statusPerDay.entrySet()) {
+            long[] c = e.getValue();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("date", e.getKey().toString());
+            m.put("bookings", c[0] + c[1] + c[2]);
+            trend.add(m);
+            Map<String, Object> st = new LinkedHashMap<>();
+            st.put("date", e.getKey().toString());
+            st.put("completed", c[0]);
+            st.put("cancelled", c[1]);
+            st.put("pending", c[2]);
+            statusTrend.add(st);
+        }
+
+        // Revenue trend by day (PAID only)
+        List<Map<String, Object>> revenueTrend = revenueByDay.entrySet().stream().map(e -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("date", e.getKey().toString());
+            m.put("revenue", e.getValue());
+            return m;
+        }).collect(Collectors.toList());
+
+        // Top movies and theaters by revenue; only the top ten names are looked up
+        List<Map<String, Object>> topMovies = top(movieRevenue, "title", ids -> {
+            Map<Long, String> names = new HashMap<>();
+            movieRepository.findAllById(ids).forEach(m -> names.put(m.getId(), m.getTitle()));
+            return names;
+        });
+        List<Map<String, Object>> topTheaters = top(theaterRevenue, "name", ids -> {
+            Map<Long, String> names = new HashMap<>();
+            theaterRepository.findAllById(ids).forEach(t -> names.put(t.getId(), t.getName()));
+            return names;
+        });
+
+        // Utilization
+        double utilization = totalSeats > 0 ? (double) soldSeats / totalSeats : 0.0;
+
+        Map<String, Object> resp = new LinkedHashMap<>();
+        Map<String, Object> kpis = new LinkedHashMap<>();
+        kpis.put("revenue", revenue);
+        kpis.put("bookings", totalBookings);
+        kpis.put("completed", completed);
+        kpis.put("cancelled", cancelled);
+        kpis.put("utilization", utilization);
+        resp.put("kpis", kpis);
+        resp.put("trend", trend);
+        resp.put("revenueTrend", revenueTrend);
+        resp.put("statusTrend", statusTrend);
+        Map<String, Object> tops = new LinkedHashMap<>();
+        tops.put("movies", topMovies);
+        tops.put("theaters", topTheaters);
+        resp.put("tops", tops);
+        return resp;
+    }
+
+    private static List<Map<String, Object>> top(Map<Long, BigDecimal> revenueById, String nameKey,
+                                                 Function<List<Long>, Map<Long, String>> names) {
+        List<Map.Entry<Long, BigDecimal>> top = revenueById.entrySet().stream()
+                .sorted((a, b) -> b.getValue().compareTo(a.getValue()))
+                .limit(10)
+                .collect(Collectors.toList());
+        Map<Long, String> resolved = names.apply(top.stream().map(Map.Entry::getKey).collect(Collectors.toList()));
+        List<Map<String, Object>> out = new ArrayList<>(top.size());
+        for (Map.Entry<Long, BigDecimal> e : top) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put(nameKey, resolved.getOrDefault(e.getKey(), "Unknown"));
+            m.put("revenue", e.getValue());
+            out.add(m);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,199 @@
+package com.moviebooking.service.analytics;
+
+import com.moviebooking.entity.Booking;
+import com.moviebooking.entity.BookingRollup;
+import com.moviebooking.entity.Schedule;
+import com.moviebooking.repository.BookingRepository;
+import com.moviebooking.repository.BookingRollupRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maintains booking_rollups. Booking writes report what they changed; the deltas
+ * are summed per rollup row for the lifetime of the transaction and written just
+ * before it commits, in key order, so a batch of bookings costs one upsert per
+ * (day, theater, movie, status) and concurrent writers lock rows in the same order.
+ */
+@Service
+public class BookingRollupService {
+
+    private final BookingRollupRepository rollupRepository;
+    private final BookingRepository bookingRepository;
+    private final LiveAnalytics liveAnalytics;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${analytics.rollup.backfill-on-start:true}")
+    private boolean backfillOnStart;
+
+    public BookingRollupService(BookingRollupRepository rollupRepository,
+                                BookingRepository bookingRepository,
+                                LiveAnalytics liveAnalytics,
+                                PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.bookingRepository = bookingRepository;
+        this.liveAnalytics = liveAnalytics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * A booking was inserted with its current status.
+     */
+    public void added(Booking booking) {
+        apply(booking, booking.getStatus(), 1);
+    }
+
+    /**
+     * A booking's status changed from {@code from} to its current status.
+     */
+    public void moved(Booking booking, Booking.Status from) {
+        if (from == booking.getStatus()) return;
+        apply(booking, from, -1);
+        apply(booking, booking.getStatus(), 1);
+    }
+
+    public List<BookingRollup> rows(LocalDate from, LocalDate to, Long theaterId) {
+        return theaterId != null
+                ? rollupRepository.findByTheaterIdAndDayBetween(theaterId, from, to)
+                : rollupRepository.findByDayBetween(from, to);
+    }
+
+    /**
+     * Rollup rows for an arbitrary set of bookings, built in memory; for scopes
+     * the table is not keyed by, such as a single customer.
+     */
+    public List<BookingRollup> aggregate(Collection<Booking> bookings) {
+        Map<RollupKey, BookingRollup> rows = new HashMap<>();
+        for (Booking b : bookings) {
+            RollupKey key = key(b, b.getStatus());
+            BookingRollup row = rows.computeIfAbsent(key, RollupKey::toRow);
+            row.setBookings(row.getBookings() + 1);
+            row.setSeats(row.getSeats() + b.getSeatsCount());
+            row.setRevenue(row.getRevenue().add(amount(b)));
+        }
+        return new ArrayList<>(rows.values());
+    }
+
+    /**
+     * Recompute the whole table from the bookings table.
+     */
+    public int rebuild() {
+        Integer rows = transactionTemplate.execute(status -> {
+            rollupRepository.deleteAllRows();
+            return rollupRepository.insertFromBookings();
+        });
+        return rows != null ? rows : 0;
+    }
+
+    // First start with the rollup table: fill it from existing bookings
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!backfillOnStart) return;
+        try {
+            if (rollupRepository.count() == 0 && bookingRepository.count() > 0) {
+                System.out.println("Backfilled " + rebuild() + " booking rollup rows.");
+            }
+        } catch (Exception e) {
+            System.out.println("Could not backfill booking rollups: " + e.getMessage());
+        }
+    }
+
+    private void apply(Booking booking, Booking.Status status, int sign) {
+        RollupKey key = key(booking, status);
+        long seats = (long) sign * booking.getSeatsCount();
+        BigDecimal revenue = sign > 0 ? amount(booking) : amount(booking).negate();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Delta delta = new Delta(sign, seats, revenue);
+            transactionTemplate.executeWithoutResult(tx -> write(key, delta));
+            liveAnalytics.apply(List.of(delta.toRow(key)));
+            return;
+        }
+        pending().merge(key, new Delta(sign, seats, revenue), Delta::plus);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<RollupKey, Delta> pending() {
+        Map<RollupKey, Delta> pending = (Map<RollupKey, Delta>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) return pending;
+        Map<RollupKey, Delta> created = new TreeMap<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                for (Map.Entry<RollupKey, Delta> e : created.entrySet()) {
+                    if (!e.getValue().isZero()) write(e.getKey(), e.getValue());
+                }
+            }
+
+            @Override
+            public void afterCommit() {
+                List<BookingRollup> deltas = new ArrayList<>(created.size());
+                created.forEach((key, delta) -> deltas.add(delta.toRow(key)));
+                liveAnalytics.apply(deltas);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(BookingRollupService.this);
+            }
+        });
+        return created;
+    }
+
+    private void write(RollupKey key, Delta delta) {
+        rollupRepository.add(key.day, key.theaterId, key.movieId, key.status.name(),
+                delta.bookings, delta.seats, delta.revenue);
+    }
+
+    private static RollupKey key(Booking booking, Booking.Status status) {
+        Schedule schedule = booking.getSchedule();
+        return new RollupKey(booking.getCreatedAt().toLocalDate(),
+                schedule.getTheater().getId(), schedule.getMovie().getId(), status);
+    }
+
+    private static BigDecimal amount(Booking booking) {
+        return booking.getTotalAmount() != null ? booking.getTotalAmount() : BigDecimal.ZERO;
+    }
+
+    private static final class Delta {
+        final long bookings;
+        final long seats;
+        final BigDecimal revenue;
+
+        Delta(long bookings, long seats, BigDecimal revenue) {
+            this.bookings = bookings;
+            this.seats = seats;
+            this.revenue = revenue;
+        }
+
+        Delta plus(Delta o) {
+            return new Delta(bookings + o.bookings, seats + o.seats, revenue.add(o.revenue));
+        }
+
+        BookingRollup toRow(RollupKey key) {
+            BookingRollup row = key.toRow();
+            row.setBookings(bookings);
+            row.setSeats(seats);
+            row.setRevenue(revenue);
+            return row;
+        }
+
+        boolean isZero() {
+            return bookings == 0 && seats == 0 && revenue.signum() == 0;
+        }
+    }
+}
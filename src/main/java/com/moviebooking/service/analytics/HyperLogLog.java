@@ -0,0 +1,85 @@
+package com.moviebooking.service.analytics;
+
+/**
+ * HyperLogLog distinct counter over long ids. 2^precision one-byte registers;
+ * at the default precision of 12 that is 4 KB with a standard error of about
+ * 1.6%. Sketches of the same precision merge by taking the register-wise
+ * maximum, so per-day sketches combine into any longer window.
+ */
+public class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 12;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) throw new IllegalArgumentException("precision " + precision);
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * A sketch over a copy of stored registers; the precision follows from the length.
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        int precision = Integer.numberOfTrailingZeros(bytes.length);
+        if (bytes.length != 1 << precision) throw new IllegalArgumentException("register count " + bytes.length);
+        HyperLogLog hll = new HyperLogLog(precision);
+        System.arraycopy(bytes, 0, hll.registers, 0, bytes.length);
+        return hll;
+    }
+
+    public void add(long id) {
+        long hash = mix(id);
+        int index = (int) (hash >>> (64 - precision));
+        // rank of the first set bit in the remaining bits, capped so it always fits
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision) + 1, 64 - precision + 1);
+        if (rank > registers[index]) registers[index] = (byte) rank;
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) throw new IllegalArgumentException("precision mismatch");
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) zeros++;
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // small range: linear counting is far more accurate
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public boolean isEmpty() {
+        for (byte r : registers) if (r != 0) return false;
+        return true;
+    }
+
+    public byte[] toBytes() {
+        return registers.clone();
+    }
+
+    // splitmix64 finaliser: sequential ids spread over all 64 bits
+    private static long mix(long z) {
+        z += 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
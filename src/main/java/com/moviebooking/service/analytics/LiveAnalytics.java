@@ -0,0 +1,244 @@
+package com.moviebooking.service.analytics;
+
+import com.moviebooking.entity.BookingRollup;
+import com.moviebooking.repository.BookingRollupRepository;
+import com.moviebooking.repository.MovieRepository;
+import com.moviebooking.repository.TheaterRepository;
+import com.moviebooking.repository.UserRepository;
+import com.moviebooking.service.schedule.ShowtimeIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory state behind the live super-admin dashboard: the last 30 days of
+ * booking rollups, kept current by applying committed booking deltas. Nothing
+ * is read from the database while nobody is subscribed; once someone is, the
+ * state is seeded from booking_rollups and {@link #changes()} returns only the
+ * top-level sections that differ from what was last pushed.
+ *
+ * Booking commits never wait on a push: {@link #apply} only numbers the deltas
+ * and queues them, and pushes fold the queue in under their own lock. A seed
+ * remembers the last number handed out before its read began, and queued
+ * deltas up to it are dropped since the rows it read already hold them. A
+ * commit whose delta is numbered only after a seed read began may still be
+ * counted twice; the periodic resync repairs that.
+ */
+@Service
+public class LiveAnalytics {
+
+    private static final int WINDOW_DAYS = 30;
+
+    private final BookingRollupRepository rollupRepository;
+    private final ShowtimeIndex showtimeIndex;
+    private final MovieRepository movieRepository;
+    private final TheaterRepository theaterRepository;
+    private final UserRepository userRepository;
+    private final AnalyticsSummarizer summarizer;
+
+    @Value("${analytics.live.system-refresh-ms:60000}")
+    private long systemRefreshMs;
+
+    @Value("${analytics.live.resync-ms:600000}")
+    private long resyncMs;
+
+    // Held by pushes across their queries; never taken by apply()
+    private final Object pushLock = new Object();
+
+    // Guarded by pushLock
+    private Map<RollupKey, BookingRollup> rows;
+    private LocalDate windowEnd;
+    private long seededAt;
+    private long seededThrough;
+    private long systemAt;
+    private Map<String, Object> system = Map.of();
+    private long[] seats = {0, 0};
+    private Map<String, Object> lastSent = Map.of();
+    // Sections a snapshot refreshed that the other subscribers have not been sent yet
+    private final Set<String> unsent = new HashSet<>();
+
+    // Written by booking commits without a lock
+    private final AtomicLong sequence = new AtomicLong();
+    private final Queue<Applied> queued = new ConcurrentLinkedQueue<>();
+    private volatile boolean live;
+    private volatile boolean bookingsChanged = true;
+    private volatile boolean systemChanged = true;
+
+    public LiveAnalytics(BookingRollupRepository rollupRepository,
+                         ShowtimeIndex showtimeIndex,
+                         MovieRepository movieRepository,
+                         TheaterRepository theaterRepository,
+                         UserRepository userRepository,
+                         AnalyticsSummarizer summarizer) {
+        this.rollupRepository = rollupRepository;
+        this.showtimeIndex = showtimeIndex;
+        this.movieRepository = movieRepository;
+        this.theaterRepository = theaterRepository;
+        this.userRepository = userRepository;
+        this.summarizer = summarizer;
+    }
+
+    /**
+     * Committed rollup deltas. Cheap enough to call on every booking commit.
+     */
+    public void apply(Collection<BookingRollup> deltas) {
+        bookingsChanged = true;
+        if (!live) return;
+        queued.add(new Applied(sequence.incrementAndGet(), List.copyOf(deltas)));
+    }
+
+    /**
+     * Movies, theaters, users or show approvals changed; recount on the next push.
+     */
+    public void systemChanged() {
+        systemChanged = true;
+        bookingsChanged = true;
+    }
+
+    /**
+     * The full dashboard, for a new subscriber.
+     */
+    public Map<String, Object> snapshot() {
+        synchronized (pushLock) {
+            Map<String, Object> previous = lastSent;
+            if (refresh()) unsent.addAll(changedSections(previous));
+            return lastSent;
+        }
+    }
+
+    /**
+     * Sections that changed since the last call, or null when nothing did.
+     */
+    public Map<String, Object> changes() {
+        synchronized (pushLock) {
+            Map<String, Object> previous = lastSent;
+            Set<String> changed = new HashSet<>(unsent);
+            unsent.clear();
+            if (refresh()) changed.addAll(changedSections(previous));
+            if (changed.isEmpty()) return null;
+            Map<String, Object> diff = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> e : lastSent.entrySet()) {
+                if (changed.contains(e.getKey())) diff.put(e.getKey(), e.getValue());
+            }
+            return diff;
+        }
+    }
+
+    /**
+     * Forget the state, e.g. when the last subscriber leaves; the next push reseeds.
+     */
+    public void release() {
+        synchronized (pushLock) {
+            live = false;
+            queued.clear();
+            rows = null;
+            lastSent = Map.of();
+            unsent.clear();
+            bookingsChanged = true;
+            systemChanged = true;
+        }
+    }
+
+    // Brings lastSent up to date; false when there was nothing to recompute
+    private boolean refresh() {
+        long now = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        boolean seeded = false;
+        if (rows == null || !today.equals(windowEnd) || now - seededAt >= resyncMs) {
+            seed(today, now);
+            seeded = true;
+        }
+        boolean systemDue = systemChanged || now - systemAt >= systemRefreshMs;
+        boolean bookingsDue = bookingsChanged || seeded;
+        if (!bookingsDue && !systemDue) return false;
+        // cleared before reading, so a change made meanwhile is picked up by the next push
+        bookingsChanged = false;
+        systemChanged = false;
+        if (bookingsDue) {
+            seats = showtimeIndex.seats(windowStart(windowEnd).atStartOfDay(), windowEnd.atTime(23, 59, 59), null);
+        }
+        if (systemDue) {
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("movies", movieRepository.count());
+            counts.put("theaters", theaterRepository.count());
+            counts.put("users", userRepository.count());
+            system = counts;
+            systemAt = now;
+        }
+        drain();
+        Map<String, Object> summary = summarizer.summarize(new ArrayList<>(rows.values()), seats[0], seats[1]);
+        summary.put("system", system);
+        lastSent = summary;
+        return true;
+    }
+
+    private void seed(LocalDate today, long now) {
+        // from here on deltas are queued; the ones numbered so far are in what is read below
+        live = true;
+        long through = sequence.get();
+        Map<RollupKey, BookingRollup> seeded = new HashMap<>();
+        for (BookingRollup row : rollupRepository.findByDayBetween(windowStart(today), today)) {
+            // copied, so that deltas never touch an entity some persistence context still holds
+            RollupKey key = RollupKey.of(row);
+            BookingRollup copy = key.toRow();
+            copy.setBookings(row.getBookings());
+            copy.setSeats(row.getSeats());
+            copy.setRevenue(row.getRevenue());
+            seeded.put(key, copy);
+        }
+        rows = seeded;
+        windowEnd = today;
+        seededAt = now;
+        seededThrough = through;
+    }
+
+    // Folds the queued deltas into rows
+    private void drain() {
+        LocalDate windowStart = windowStart(windowEnd);
+        for (Applied applied; (applied = queued.poll()) != null; ) {
+            if (applied.sequence <= seededThrough) continue;
+            for (BookingRollup d : applied.deltas) {
+                if (d.getDay().isAfter(windowEnd) || d.getDay().isBefore(windowStart)) continue;
+                BookingRollup row = rows.computeIfAbsent(RollupKey.of(d), RollupKey::toRow);
+                row.setBookings(row.getBookings() + d.getBookings());
+                row.setSeats(row.getSeats() + d.getSeats());
+                row.setRevenue(row.getRevenue().add(d.getRevenue()));
+            }
+        }
+    }
+
+    private Set<String> changedSections(Map<String, Object> previous) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, Object> e : lastSent.entrySet()) {
+            if (!Objects.equals(e.getValue(), previous.get(e.getKey()))) changed.add(e.getKey());
+        }
+        return changed;
+    }
+
+    private static LocalDate windowStart(LocalDate end) {
+        return end.minusDays(WINDOW_DAYS - 1);
+    }
+
+    private static final class Applied {
+        final long sequence;
+        final List<BookingRollup> deltas;
+
+        Applied(long sequence, List<BookingRollup> deltas) {
+            this.sequence = sequence;
+            this.deltas = deltas;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.moviebooking.service.analytics;
+
+import com.moviebooking.entity.Booking;
+import com.moviebooking.entity.BookingRollup;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+// Identity of a booking_rollups row
+final class RollupKey implements Comparable<RollupKey> {
+    final LocalDate day;
+    final Long theaterId;
+    final Long movieId;
+    final Booking.Status status;
+
+    RollupKey(LocalDate day, Long theaterId, Long movieId, Booking.Status status) {
+        this.day = day;
+        this.theaterId = theaterId;
+        this.movieId = movieId;
+        this.status = status;
+    }
+
+    static RollupKey of(BookingRollup row) {
+        return new RollupKey(row.getDay(), row.getTheaterId(), row.getMovieId(), row.getStatus());
+    }
+
+    BookingRollup toRow() {
+        BookingRollup row = new BookingRollup();
+        row.setDay(day);
+        row.setTheaterId(theaterId);
+        row.setMovieId(movieId);
+        row.setStatus(status);
+        return row;
+    }
+
+    @Override
+    public int compareTo(RollupKey o) {
+        int c = day.compareTo(o.day);
+        if (c == 0) c = theaterId.compareTo(o.theaterId);
+        if (c == 0) c = movieId.compareTo(o.movieId);
+        if (c == 0) c = status.name().compareTo(o.status.name());
+        return c;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof RollupKey k)) return false;
+        return day.equals(k.day) && theaterId.equals(k.theaterId)
+                && movieId.equals(k.movieId) && status == k.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(day, theaterId, movieId, status);
+    }
+}
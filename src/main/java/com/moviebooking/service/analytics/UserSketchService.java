@@ -0,0 +1,210 @@
+package com.moviebooking.service.analytics;
+
+import com.moviebooking.entity.Booking;
+import com.moviebooking.entity.UserSketch;
+import com.moviebooking.repository.UserSketchRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Distinct booking users per day, overall and per theater, as HyperLogLog
+ * sketches in user_sketches. Bookings add their user to an in-memory sketch
+ * once they commit; sketches are merged into the table every few seconds, so
+ * no booking waits on a shared row. Any window is answered by merging its
+ * daily sketches, in constant memory.
+ */
+@Service
+public class UserSketchService {
+
+    private final UserSketchRepository sketchRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Not yet flushed, by (day, theater id or ALL_THEATERS)
+    private final Map<SketchKey, HyperLogLog> pending = new ConcurrentHashMap<>();
+
+    @Value("${analytics.sketch.backfill-on-start:true}")
+    private boolean backfillOnStart;
+
+    public UserSketchService(UserSketchRepository sketchRepository, PlatformTransactionManager transactionManager) {
+        this.sketchRepository = sketchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Count the booking's user once the current transaction commits.
+     */
+    public void record(Booking booking) {
+        LocalDate day = booking.getCreatedAt().toLocalDate();
+        Long theaterId = booking.getSchedule().getTheater().getId();
+        Long userId = booking.getUser().getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(day, theaterId, userId);
+                }
+            });
+        } else {
+            add(day, theaterId, userId);
+        }
+    }
+
+    /**
+     * Estimated distinct users who booked between {@code from} and {@code to}
+     * inclusive, at one theater or, with a null theater, anywhere.
+     */
+    public long uniqueUsers(LocalDate from, LocalDate to, Long theaterId) {
+        Long scope = theaterId != null ? theaterId : UserSketch.ALL_THEATERS;
+        HyperLogLog merged = new HyperLogLog();
+        for (UserSketch sketch : sketchRepository.findByTheaterIdAndDayBetween(scope, from, to)) {
+            merged.merge(HyperLogLog.fromBytes(sketch.getRegisters()));
+        }
+        for (Map.Entry<SketchKey, HyperLogLog> e : pending.entrySet()) {
+            SketchKey key = e.getKey();
+            if (key.theaterId.equals(scope) && !key.day.isBefore(from) && !key.day.isAfter(to)) {
+                HyperLogLog hll = e.getValue();
+                synchronized (hll) {
+                    merged.merge(hll);
+                }
+            }
+        }
+        return merged.estimate();
+    }
+
+    /**
+     * Distinct users on the day {@code to}, and over the 7 and 30 days ending on it.
+     */
+    public Map<String, Object> activeUsers(LocalDate to, Long theaterId) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("dau", uniqueUsers(to, to, theaterId));
+        m.put("wau", uniqueUsers(to.minusDays(6), to, theaterId));
+        m.put("mau", uniqueUsers(to.minusDays(29), to, theaterId));
+        return m;
+    }
+
+    // Merge-by-max is idempotent, so a retried or repeated flush never over-counts
+    @Scheduled(fixedDelayString = "${analytics.sketch.flush-ms:10000}")
+    public void flush() {
+        for (SketchKey key : new ArrayList<>(pending.keySet())) {
+            HyperLogLog hll = pending.remove(key);
+            if (hll == null) continue;
+            byte[] registers;
+            synchronized (hll) {
+                registers = hll.toBytes();
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> merge(key, registers));
+            } catch (RuntimeException e) {
+                System.out.println("User sketch flush failed for " + key.day + ": " + e.getMessage());
+                // keep the users for the next flush
+                pending.merge(key, HyperLogLog.fromBytes(registers), (a, b) -> {
+                    synchronized (a) {
+                        a.merge(b);
+                    }
+                    return a;
+                });
+            }
+        }
+    }
+
+    // Sketches still in memory would otherwise be lost on every deploy; backfill only fills an empty table
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        if (!pending.isEmpty()) {
+            System.out.println("User sketches for " + pending.size() + " day/theater keys could not be flushed on shutdown.");
+        }
+    }
+
+    // First start with the sketch table: fill it from existing bookings, a month at a time
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!backfillOnStart) return;
+        try {
+            if (sketchRepository.count() > 0) return;
+            LocalDateTime first = sketchRepository.findFirstBookingTime();
+            if (first == null) return;
+            LocalDateTime end = LocalDateTime.now().plusDays(1);
+            for (LocalDateTime start = first.toLocalDate().atStartOfDay(); start.isBefore(end); start = start.plusMonths(1)) {
+                Map<SketchKey, HyperLogLog> month = new HashMap<>();
+                for (Object[] row : sketchRepository.findBookingUsers(start, start.plusMonths(1))) {
+                    LocalDate day = row[0] instanceof java.sql.Date d ? d.toLocalDate() : (LocalDate) row[0];
+                    Long theaterId = ((Number) row[1]).longValue();
+                    long userId = ((Number) row[2]).longValue();
+                    month.computeIfAbsent(new SketchKey(day, UserSketch.ALL_THEATERS), k -> new HyperLogLog()).add(userId);
+                    month.computeIfAbsent(new SketchKey(day, theaterId), k -> new HyperLogLog()).add(userId);
+                }
+                for (Map.Entry<SketchKey, HyperLogLog> e : month.entrySet()) {
+                    byte[] registers = e.getValue().toBytes();
+                    transactionTemplate.executeWithoutResult(status -> merge(e.getKey(), registers));
+                }
+            }
+            System.out.println("Backfilled user sketches from " + first.toLocalDate() + ".");
+        } catch (Exception e) {
+            System.out.println("Could not backfill user sketches: " + e.getMessage());
+        }
+    }
+
+    private void add(LocalDate day, Long theaterId, Long userId) {
+        addTo(new SketchKey(day, UserSketch.ALL_THEATERS), userId);
+        addTo(new SketchKey(day, theaterId), userId);
+    }
+
+    private void addTo(SketchKey key, long userId) {
+        // inside compute, so a concurrent flush cannot take the sketch between lookup and add
+        pending.compute(key, (k, hll) -> {
+            if (hll == null) hll = new HyperLogLog();
+            synchronized (hll) {
+                hll.add(userId);
+            }
+            return hll;
+        });
+    }
+
+    private void merge(SketchKey key, byte[] registers) {
+        sketchRepository.insertIfAbsent(key.day, key.theaterId, registers);
+        UserSketch sketch = sketchRepository.lockByDayAndTheaterId(key.day, key.theaterId).orElseThrow();
+        HyperLogLog stored = HyperLogLog.fromBytes(sketch.getRegisters());
+        stored.merge(HyperLogLog.fromBytes(registers));
+        sketch.setRegisters(stored.toBytes());
+        sketch.setUpdatedAt(LocalDateTime.now());
+        sketchRepository.save(sketch);
+    }
+
+    private static final class SketchKey {
+        final LocalDate day;
+        final Long theaterId;
+
+        SketchKey(LocalDate day, Long theaterId) {
+            this.day = day;
+            this.theaterId = theaterId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SketchKey k && day.equals(k.day) && theaterId.equals(k.theaterId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(day, theaterId);
+        }
+    }
+}
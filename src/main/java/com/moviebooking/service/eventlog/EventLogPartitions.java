@@ -0,0 +1,127 @@
+package com.moviebooking.service.eventlog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optional monthly RANGE partitioning of event_logs (MySQL). When enabled, the
+ * table is converted once on startup, a daily job keeps partitions created a
+ * few months ahead, and months older than the retention are dropped, which is
+ * a metadata operation rather than a large DELETE. Off by default since the
+ * conversion rewrites the table and changes its primary key to (id, at).
+ */
+@Service
+public class EventLogPartitions {
+
+    private static final DateTimeFormatter NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${eventlog.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${eventlog.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    // 0 keeps every month
+    @Value("${eventlog.partitioning.retention-months:0}")
+    private int retentionMonths;
+
+    public EventLogPartitions(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (!enabled) return;
+        try {
+            if (partitions().isEmpty()) convert();
+            maintain();
+        } catch (Exception e) {
+            System.out.println("Could not partition event_logs: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${eventlog.partitioning.cron:0 15 3 * * *}")
+    public void maintain() {
+        if (!enabled) return;
+        List<String> existing = partitions();
+        if (existing.isEmpty()) return;
+        YearMonth now = YearMonth.now();
+        YearMonth last = null;
+        for (String name : existing) {
+            if (isMonth(name)) last = YearMonth.parse(name, NAME);
+        }
+        // split the next months off the catch-all partition; ranges must keep increasing
+        List<String> added = new ArrayList<>();
+        YearMonth from = last == null || last.isBefore(now) ? now : last.plusMonths(1);
+        for (YearMonth m = from; !m.isAfter(now.plusMonths(monthsAhead)); m = m.plusMonths(1)) {
+            added.add(definition(m));
+        }
+        if (!added.isEmpty()) {
+            jdbcTemplate.execute("alter table event_logs reorganize partition pmax into (" +
+                    String.join(", ", added) + ", partition pmax values less than maxvalue)");
+        }
+        if (retentionMonths > 0) {
+            String oldest = now.minusMonths(retentionMonths).format(NAME);
+            List<String> expired = new ArrayList<>();
+            for (String name : existing) {
+                if (isMonth(name) && name.compareTo(oldest) < 0) expired.add(name);
+            }
+            if (!expired.isEmpty()) {
+                jdbcTemplate.execute("alter table event_logs drop partition " + String.join(", ", expired));
+                System.out.println("Dropped event_logs partitions " + expired);
+            }
+        }
+    }
+
+    // One-off: drop foreign keys, widen the primary key with the partition column, partition by month
+    private void convert() {
+        for (String fk : jdbcTemplate.queryForList("select constraint_name from information_schema.table_constraints " +
+                "where table_schema = database() and table_name = 'event_logs' and constraint_type = 'FOREIGN KEY'",
+                String.class)) {
+            jdbcTemplate.execute("alter table event_logs drop foreign key `" + fk + "`");
+        }
+        jdbcTemplate.execute("alter table event_logs drop primary key, add primary key (id, at)");
+        LocalDate first = jdbcTemplate.queryForObject("select date(min(at)) from event_logs", LocalDate.class);
+        YearMonth start = first != null ? YearMonth.from(first) : YearMonth.now();
+        List<String> defs = new ArrayList<>();
+        // rows from before the first month fall in p000000 (only possible for clock changes)
+        defs.add("partition p000000 values less than (to_days('" + start.atDay(1) + "'))");
+        for (YearMonth m = start; !m.isAfter(YearMonth.now().plusMonths(monthsAhead)); m = m.plusMonths(1)) {
+            defs.add(definition(m));
+        }
+        defs.add("partition pmax values less than maxvalue");
+        jdbcTemplate.execute("alter table event_logs partition by range (to_days(at)) (" + String.join(", ", defs) + ")");
+        System.out.println("Partitioned event_logs by month from " + start + ".");
+    }
+
+    private List<String> partitions() {
+        List<String> names = new ArrayList<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList("select partition_name from information_schema.partitions " +
+                "where table_schema = database() and table_name = 'event_logs' and partition_name is not null " +
+                "order by partition_ordinal_position")) {
+            names.add((String) row.values().iterator().next());
+        }
+        return names;
+    }
+
+    private static boolean isMonth(String name) {
+        return name.matches("p\\d{6}") && !name.equals("p000000");
+    }
+
+    private static String definition(YearMonth month) {
+        return "partition " + month.format(NAME) + " values less than (to_days('" + month.plusMonths(1).atDay(1) + "'))";
+    }
+}
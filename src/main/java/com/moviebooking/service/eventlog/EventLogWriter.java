@@ -0,0 +1,203 @@
+package com.moviebooking.service.eventlog;
+
+import com.moviebooking.entity.EventLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only writer for event_logs. Request threads only enqueue (a lock-free
+ * queue, many producers, one consumer); a single flusher thread inserts what has
+ * accumulated as one JDBC batch every few hundred milliseconds, or sooner once
+ * a batch is full. The timestamp is taken when the event is appended, not when
+ * it is written. Events still queued when the process dies are lost, which is
+ * the trade for not paying an insert round trip per status change. A batch the
+ * database refuses because of its data is retried row by row, and rows that are
+ * still refused are logged and dropped so they cannot block the queue.
+ */
+@Service
+public class EventLogWriter {
+
+    // Length of event_logs.notes
+    private static final int NOTES_LENGTH = 1000;
+
+    private static final String INSERT = "insert into event_logs " +
+            "(entity_type, entity_id, user_id, event_type, from_status, to_status, notes, at) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Queue<Row> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Value("${eventlog.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${eventlog.batch-size:500}")
+    private int batchSize;
+
+    @Value("${eventlog.max-queued:100000}")
+    private int maxQueued;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public EventLogWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = new Thread(this::run, "event-log-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Queue an event for insertion. The entity is only read, never saved.
+     */
+    public void append(EventLog event) {
+        if (queued.incrementAndGet() > maxQueued) {
+            // database unreachable for a long time; keep memory bounded
+            queued.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.add(new Row(event));
+        if (queued.get() >= batchSize) LockSupport.unpark(flusher);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("queued", queued.get());
+        m.put("written", written.get());
+        m.put("dropped", dropped.get());
+        m.put("rejected", rejected.get());
+        return m;
+    }
+
+    private void run() {
+        while (true) {
+            if (running && queued.get() < batchSize) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+            }
+            boolean ok = true;
+            while (ok && !queue.isEmpty()) ok = flushBatch();
+            // on shutdown: one last drain, given up if the database is gone
+            if (!running && (queue.isEmpty() || !ok)) return;
+        }
+    }
+
+    // false when the batch failed; its rows go back on the queue for the next round
+    private boolean flushBatch() {
+        List<Row> batch = new ArrayList<>(batchSize);
+        for (Row r; batch.size() < batchSize && (r = queue.poll()) != null; ) batch.add(r);
+        if (batch.isEmpty()) return true;
+        try {
+            jdbcTemplate.batchUpdate(INSERT, batch, batch.size(), (ps, row) -> row.bind(ps));
+            queued.addAndGet(-batch.size());
+            written.addAndGet(batch.size());
+            return true;
+        } catch (RuntimeException e) {
+            if (refusedData(e)) return flushRows(batch);
+            System.out.println("Event log flush failed, will retry " + batch.size() + " events: " + e.getMessage());
+            queue.addAll(batch);
+            if (running) LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            return false;
+        }
+    }
+
+    // One insert per row, so a single bad row does not take the batch with it
+    private boolean flushRows(List<Row> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            Row row = batch.get(i);
+            try {
+                jdbcTemplate.update(INSERT, row::bind);
+                written.incrementAndGet();
+            } catch (DataIntegrityViolationException e) {
+                rejected.incrementAndGet();
+                System.out.println("Event log dropped " + row.eventType + " for " + row.entityType + " "
+                        + row.entityId + ": " + e.getMostSpecificCause().getMessage());
+            } catch (RuntimeException e) {
+                // not about this row after all; retry the rest with the next round
+                System.out.println("Event log flush failed, will retry " + (batch.size() - i) + " events: " + e.getMessage());
+                queued.addAndGet(-i);
+                queue.addAll(batch.subList(i, batch.size()));
+                if (running) LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+                return false;
+            }
+        }
+        queued.addAndGet(-batch.size());
+        return true;
+    }
+
+    private static boolean refusedData(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof DataIntegrityViolationException || t instanceof BatchUpdateException) return true;
+        }
+        return false;
+    }
+
+    // Immutable copy taken on the request thread
+    private static final class Row {
+        final String entityType;
+        final long entityId;
+        final Long userId;
+        final String eventType;
+        final String fromStatus;
+        final String toStatus;
+        final String notes;
+        final Timestamp at;
+
+        Row(EventLog e) {
+            this.entityType = e.getEntityType().name();
+            this.entityId = e.getEntityId();
+            this.userId = e.getUser() != null ? e.getUser().getId() : null;
+            this.eventType = e.getEventType();
+            this.fromStatus = e.getFromStatus();
+            this.toStatus = e.getToStatus();
+            String notes = e.getNotes();
+            this.notes = notes != null && notes.length() > NOTES_LENGTH ? notes.substring(0, NOTES_LENGTH) : notes;
+            this.at = Timestamp.valueOf(e.getAt());
+        }
+
+        void bind(PreparedStatement ps) throws SQLException {
+            ps.setString(1, entityType);
+            ps.setLong(2, entityId);
+            ps.setObject(3, userId);
+            ps.setString(4, eventType);
+            ps.setString(5, fromStatus);
+            ps.setString(6, toStatus);
+            ps.setString(7, notes);
+            ps.setTimestamp(8, at);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.moviebooking.service.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bulk booking export. Rows come from a single forward-only, read-only JDBC
+ * cursor that the MySQL driver streams row by row (fetch size
+ * Integer.MIN_VALUE), already joined with the schedule, movie and theater
+ * names, and each one is written out as soon as it is read. Nothing is loaded
+ * into a persistence context and no row is kept, so heap use does not grow
+ * with the size of the range.
+ */
+@Service
+public class BookingExportService {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final String[] COLUMNS = {
+            "id", "created_at", "status", "seats_count", "seat_numbers", "total_amount", "user_id",
+            "schedule_id", "show_time", "movie_id", "movie_title", "theater_id", "theater_name"
+    };
+
+    private static final String SELECT = "select b.id, b.created_at, b.status, b.seats_count, b.seat_numbers, " +
+            "b.total_amount, b.user_id, s.id, s.show_time, m.id, m.title, t.id, t.name " +
+            "from bookings b join schedules s on s.id = b.schedule_id " +
+            "join movies m on m.id = s.movie_id join theaters t on t.id = s.theater_id " +
+            "where b.created_at >= ? and b.created_at < ?";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public BookingExportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write the bookings created in [{@code start}, {@code end}) to {@code out},
+     * optionally for one theater and one status, ordered by id.
+     */
+    public void write(OutputStream out, LocalDateTime start, LocalDateTime end, Long theaterId, String status,
+                      Format format, boolean gzip) throws IOException {
+        GZIPOutputStream zip = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(zip != null ? zip : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        RowSink sink = format == Format.NDJSON ? new NdjsonSink(writer) : new CsvSink(writer);
+
+        StringBuilder sql = new StringBuilder(SELECT);
+        List<Object> args = new ArrayList<>(List.of(start, end));
+        if (theaterId != null) {
+            sql.append(" and s.theater_id = ?");
+            args.add(theaterId);
+        }
+        if (status != null) {
+            sql.append(" and b.status = ?");
+            args.add(status);
+        }
+        sql.append(" order by b.id");
+
+        Statement[] running = new Statement[1];
+        sink.begin();
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                // MySQL Connector/J streams the result set instead of buffering it
+                ps.setFetchSize(Integer.MIN_VALUE);
+                for (int i = 0; i < args.size(); i++) ps.setObject(i + 1, args.get(i));
+                running[0] = ps;
+                return ps;
+            }, rs -> {
+                try {
+                    sink.row(rs);
+                } catch (IOException e) {
+                    // client went away; stop the server reading the rest instead of draining it
+                    cancel(running[0]);
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        sink.end();
+        writer.flush();
+        if (zip != null) zip.finish();
+        out.flush();
+    }
+
+    private static void cancel(Statement statement) {
+        try {
+            if (statement != null) statement.cancel();
+        } catch (SQLException ignored) {
+            // the statement is closed right after anyway
+        }
+    }
+
+    private interface RowSink {
+        void begin() throws IOException;
+
+        void row(ResultSet rs) throws SQLException, IOException;
+
+        void end() throws IOException;
+    }
+
+    private static final class CsvSink implements RowSink {
+        private final Writer writer;
+
+        CsvSink(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= COLUMNS.length; i++) {
+                if (i > 1) writer.write(',');
+                Object value = value(rs, i);
+                if (value != null) field(value.toString());
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void end() {
+        }
+
+        // RFC 4180: quote fields holding a separator, quote or line break
+        private void field(String s) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < s.length() && !quote; i++) {
+                char c = s.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(s);
+                return;
+            }
+            writer.write('"');
+            writer.write(s.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private final class NdjsonSink implements RowSink {
+        private final JsonGenerator json;
+        private boolean any;
+
+        NdjsonSink(Writer writer) throws IOException {
+            json = objectMapper.getFactory().createGenerator(writer);
+            json.setRootValueSeparator(new SerializedString("\n"));
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            for (int i = 1; i <= COLUMNS.length; i++) {
+                Object value = value(rs, i);
+                json.writeFieldName(COLUMNS[i - 1]);
+                if (value == null) json.writeNull();
+                else if (value instanceof Long l) json.writeNumber(l);
+                else if (value instanceof Integer n) json.writeNumber(n);
+                else if (value instanceof BigDecimal d) json.writeNumber(d);
+                else json.writeString(value.toString());
+            }
+            json.writeEndObject();
+            any = true;
+        }
+
+        @Override
+        public void end() throws IOException {
+            if (any) json.writeRaw('\n');
+            json.flush();
+        }
+    }
+
+    private static Object value(ResultSet rs, int column) throws SQLException {
+        return switch (column) {
+            case 1, 7, 8, 10, 12 -> rs.getObject(column, Long.class);
+            case 2, 9 -> rs.getObject(column, LocalDateTime.class);
+            case 4 -> rs.getObject(column, Integer.class);
+            case 6 -> rs.getBigDecimal(column);
+            default -> rs.getString(column);
+        };
+    }
+}
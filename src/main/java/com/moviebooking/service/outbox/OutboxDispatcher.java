@@ -0,0 +1,294 @@
+package com.moviebooking.service.outbox;
+
+import com.moviebooking.entity.Booking;
+import com.moviebooking.entity.Notification;
+import com.moviebooking.entity.OutboxEvent;
+import com.moviebooking.entity.Schedule;
+import com.moviebooking.entity.Theater;
+import com.moviebooking.entity.User;
+import com.moviebooking.repository.BookingRepository;
+import com.moviebooking.repository.OutboxEventRepository;
+import com.moviebooking.service.EmailService;
+import com.moviebooking.service.NotificationService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains due outbox rows in batches. A booking event fans out to notifications
+ * and per-recipient email rows in one transaction, so it is applied exactly
+ * once; emails are sent outside any transaction and retried with exponential
+ * backoff until {@code outbox.max-attempts}, after which the row is marked DEAD.
+ * Sends run on their own small pool, so a slow mail server only holds up mail,
+ * never the shared scheduler thread that claims rows.
+ */
+@Service
+public class OutboxDispatcher {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxService outboxService;
+    private final BookingRepository bookingRepository;
+    private final NotificationService notificationService;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${outbox.backoff-ms:2000}")
+    private long backoffMs;
+
+    // How long a claimed row stays invisible to other dispatchers
+    @Value("${outbox.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${outbox.mail-threads:2}")
+    private int mailThreads;
+
+    private ThreadPoolExecutor mailers;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            OutboxService outboxService,
+                            BookingRepository bookingRepository,
+                            NotificationService notificationService,
+                            EmailService emailService,
+                            PlatformTransactionManager transactionManager) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxService = outboxService;
+        this.bookingRepository = bookingRepository;
+        this.notificationService = notificationService;
+        this.emailService = emailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger n = new AtomicInteger();
+        // a full queue turns sends away; their rows come round again once the lease runs out
+        mailers = new ThreadPoolExecutor(mailThreads, mailThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, batchSize)), r -> {
+            Thread t = new Thread(r, "outbox-mail-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        mailers.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.dispatch.interval-ms:1000}")
+    public void dispatch() {
+        List<Long> ids = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> due = outboxEventRepository.lockDueIds(now, batchSize);
+            if (!due.isEmpty()) outboxEventRepository.lease(due, now.plusSeconds(leaseSeconds));
+            return due;
+        });
+        if (ids == null) return;
+        for (Long id : ids) {
+            OutboxEvent event = outboxEventRepository.findById(id).orElse(null);
+            if (event == null || event.getStatus() != OutboxEvent.Status.PENDING) continue;
+            if (event.getType() == OutboxEvent.Type.EMAIL) {
+                try {
+                    mailers.execute(() -> attempt(event));
+                } catch (RejectedExecutionException e) {
+                    // mail is backed up; leave the row leased
+                }
+            } else {
+                attempt(event);
+            }
+        }
+    }
+
+    private void attempt(OutboxEvent event) {
+        try {
+            deliver(event);
+        } catch (RuntimeException e) {
+            failed(event, e);
+        }
+    }
+
+    private void deliver(OutboxEvent event) {
+        switch (event.getType()) {
+            case BOOKING_CONFIRMED -> transactionTemplate.executeWithoutResult(status -> {
+                bookingRepository.findById(event.getAggregateId()).ifPresent(this::bookingConfirmed);
+                markSent(event);
+            });
+            case BATCH_CONFIRMED -> transactionTemplate.executeWithoutResult(status -> {
+                List<Booking> bookings = bookingRepository.findAllById(outboxService.readBookingIds(event));
+                if (!bookings.isEmpty()) batchConfirmed(bookings);
+                markSent(event);
+            });
+            case EMAIL -> {
+                Map<String, String> mail = outboxService.readEmail(event);
+                emailService.send(mail.get("to"), mail.get("subject"), mail.get("body"));
+                markSent(event);
+            }
+        }
+    }
+
+    private void markSent(OutboxEvent event) {
+        event.setStatus(OutboxEvent.Status.SENT);
+        event.setLastError(null);
+        outboxEventRepository.save(event);
+    }
+
+    private void failed(OutboxEvent event, RuntimeException e) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        event.setLastError(error.length() > 500 ? error.substring(0, 500) : error);
+        // the failed transaction may have marked the detached row SENT already
+        event.setStatus(OutboxEvent.Status.PENDING);
+        if (attempts >= maxAttempts) {
+            event.setStatus(OutboxEvent.Status.DEAD);
+            System.out.println("Outbox event " + event.getId() + " moved to DEAD after " + attempts + " attempts: " + error);
+        } else {
+            long delay = backoffMs << Math.min(attempts - 1, 16);
+            event.setNextAttemptAt(LocalDateTime.now().plusNanos(delay * 1_000_000));
+        }
+        outboxEventRepository.save(event);
+    }
+
+    private void bookingConfirmed(Booking booking) {
+        User user = booking.getUser();
+        Schedule schedule = booking.getSchedule();
+        BigDecimal total = booking.getTotalAmount();
+        int seatsCount = booking.getSeatsCount();
+
+        // Build common context
+        String movieTitle = schedule.getMovie() != null ? schedule.getMovie().getTitle() : "Movie";
+        String theaterName = schedule.getTheater() != null ? schedule.getTheater().getName() : "Theater";
+        String subject = "Booking Confirmed: " + movieTitle;
+        String emailBody = "Hi " + (user.getFirstName() != null ? user.getFirstName() : "") + ",\n\n" +
+                "Your booking is confirmed.\n" +
+                "Movie: " + movieTitle + "\n" +
+                "Theater: " + theaterName + "\n" +
+                "Show Time: " + schedule.getShowTime() + "\n" +
+                "Seats: " + seatsCount + "\n" +
+                "Total: " + total + "\n\n" +
+                "Thank you for choosing MovieHub!";
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("entityType", "BOOKING");
+        data.put("entityId", booking.getId());
+        data.put("scheduleId", schedule.getId());
+        data.put("movieId", schedule.getMovie() != null ? schedule.getMovie().getId() : null);
+
+        // Create notification for customer
+        notificationService.create(user,
+                "Booking confirmed",
+                "You booked " + seatsCount + " seats for " + movieTitle +
+                        " at " + schedule.getShowTime() + ".",
+                Notification.Type.BOOKING,
+                data);
+        if (user.getEmail() != null && !user.getEmail().isBlank()) {
+            outboxService.email(user.getEmail(), subject, emailBody);
+        }
+
+        // Notify theater owner if present
+        Theater theater = schedule.getTheater();
+        if (theater != null && theater.getOwner() != null) {
+            User owner = theater.getOwner();
+            notificationService.create(owner,
+                    "New booking",
+                    user.getFirstName() + " booked " + seatsCount + " seats for " + movieTitle +
+                            " at " + schedule.getShowTime() + ".",
+                    Notification.Type.BOOKING,
+                    data);
+            if (owner.getEmail() != null && !owner.getEmail().isBlank()) {
+                String ownerBody = "Hello " + (owner.getFirstName() != null ? owner.getFirstName() : "") + ",\n\n" +
+                        "A new booking has been made.\n" +
+                        "Movie: " + movieTitle + "\n" +
+                        "Show Time: " + schedule.getShowTime() + "\n" +
+                        "Seats: " + seatsCount + "\n\n" +
+                        "Regards, MovieHub";
+                outboxService.email(owner.getEmail(), "New Booking - " + movieTitle, ownerBody);
+            }
+        }
+    }
+
+    private void batchConfirmed(List<Booking> bookings) {
+        User user = bookings.get(0).getUser();
+        int seats = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        StringBuilder lines = new StringBuilder();
+        Map<Long, List<Booking>> byOwner = new LinkedHashMap<>();
+        for (Booking b : bookings) {
+            Schedule schedule = b.getSchedule();
+            seats += b.getSeatsCount();
+            total = total.add(b.getTotalAmount());
+            lines.append(" - ").append(movieTitle(schedule)).append(" @ ").append(schedule.getShowTime())
+                    .append(": ").append(b.getSeatsCount()).append(" seats\n");
+            Theater theater = schedule.getTheater();
+            if (theater != null && theater.getOwner() != null) {
+                byOwner.computeIfAbsent(theater.getOwner().getId(), k -> new ArrayList<>()).add(b);
+            }
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("entityType", "BOOKING");
+        data.put("entityIds", bookings.stream().map(Booking::getId).toList());
+
+        notificationService.create(user,
+                "Booking confirmed",
+                "You booked " + seats + " seats across " + bookings.size() + " shows.",
+                Notification.Type.BOOKING,
+                data);
+        if (user.getEmail() != null && !user.getEmail().isBlank()) {
+            String body = "Hi " + (user.getFirstName() != null ? user.getFirstName() : "") + ",\n\n" +
+                    "Your group booking is confirmed.\n" + lines +
+                    "Seats: " + seats + "\n" +
+                    "Total: " + total + "\n\n" +
+                    "Thank you for choosing MovieHub!";
+            outboxService.email(user.getEmail(), "Booking Confirmed: " + bookings.size() + " shows", body);
+        }
+
+        for (Map.Entry<Long, List<Booking>> e : byOwner.entrySet()) {
+            User owner = e.getValue().get(0).getSchedule().getTheater().getOwner();
+            int ownerSeats = e.getValue().stream().mapToInt(Booking::getSeatsCount).sum();
+            notificationService.create(owner,
+                    "New booking",
+                    user.getFirstName() + " booked " + ownerSeats + " seats across " + e.getValue().size() + " shows.",
+                    Notification.Type.BOOKING,
+                    data);
+            if (owner.getEmail() != null && !owner.getEmail().isBlank()) {
+                StringBuilder ownerLines = new StringBuilder();
+                for (Booking b : e.getValue()) {
+                    ownerLines.append(" - ").append(movieTitle(b.getSchedule())).append(" @ ")
+                            .append(b.getSchedule().getShowTime()).append(": ").append(b.getSeatsCount()).append(" seats\n");
+                }
+                String ownerBody = "Hello " + (owner.getFirstName() != null ? owner.getFirstName() : "") + ",\n\n" +
+                        "A new group booking has been made.\n" + ownerLines + "\n" +
+                        "Regards, MovieHub";
+                outboxService.email(owner.getEmail(), "New Group Booking - " + e.getValue().size() + " shows", ownerBody);
+            }
+        }
+    }
+
+    private static String movieTitle(Schedule schedule) {
+        return schedule.getMovie() != null ? schedule.getMovie().getTitle() : "Movie";
+    }
+}
@@ -0,0 +1,92 @@
+package com.moviebooking.service.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moviebooking.entity.OutboxEvent;
+import com.moviebooking.repository.OutboxEventRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records side effects to run after a commit. Callers must be inside the
+ * transaction whose outcome the event depends on; {@link OutboxDispatcher}
+ * delivers the rows once they are visible.
+ */
+@Service
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public OutboxService(OutboxEventRepository outboxEventRepository) {
+        this.outboxEventRepository = outboxEventRepository;
+    }
+
+    /**
+     * A booking became final; customer and theater owner are told about it.
+     */
+    public void bookingConfirmed(Long bookingId) {
+        record(OutboxEvent.Type.BOOKING_CONFIRMED, bookingId, null);
+    }
+
+    /**
+     * Several bookings made by one batch request; one message per recipient.
+     */
+    public void bookingsConfirmed(List<Long> bookingIds) {
+        if (bookingIds.size() == 1) {
+            bookingConfirmed(bookingIds.get(0));
+            return;
+        }
+        StringBuilder ids = new StringBuilder();
+        for (Long id : bookingIds) {
+            if (ids.length() > 0) ids.append(',');
+            ids.append(id);
+        }
+        record(OutboxEvent.Type.BATCH_CONFIRMED, bookingIds.get(0), ids.toString());
+    }
+
+    public List<Long> readBookingIds(OutboxEvent event) {
+        List<Long> ids = new ArrayList<>();
+        for (String id : event.getPayload().split(",")) ids.add(Long.valueOf(id));
+        return ids;
+    }
+
+    public void email(String to, String subject, String body) {
+        Map<String, String> mail = new LinkedHashMap<>();
+        mail.put("to", to);
+        mail.put("subject", subject);
+        mail.put("body", body);
+        try {
+            record(OutboxEvent.Type.EMAIL, null, objectMapper.writeValueAsString(mail));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize email", e);
+        }
+    }
+
+    public Map<String, String> readEmail(OutboxEvent event) {
+        try {
+            return objectMapper.readerForMapOf(String.class).readValue(event.getPayload());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Malformed email payload", e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("pending", outboxEventRepository.countByStatus(OutboxEvent.Status.PENDING));
+        m.put("dead", outboxEventRepository.countByStatus(OutboxEvent.Status.DEAD));
+        return m;
+    }
+
+    private void record(OutboxEvent.Type type, Long aggregateId, String payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setType(type);
+        event.setAggregateId(aggregateId);
+        event.setPayload(payload);
+        outboxEventRepository.save(event);
+    }
+}
@@ -0,0 +1,344 @@
+package com.moviebooking.service.report;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.pdf.PdfWriter;
+import com.moviebooking.service.AnalyticsService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Daily PDF reports, rendered by a small worker pool and kept on disk. A
+ * report for a closed day never changes, so it is rendered once and served from
+ * its file from then on. Event logs are written behind, so a day only counts as
+ * closed {@code analytics.closed-day-grace-days} after it; until then its report
+ * is re-rendered once it is older than {@code report.open-day-ttl-seconds}.
+ * Concurrent requests for the same day share one job.
+ */
+@Service
+public class ReportService {
+
+    private final AnalyticsService analyticsService;
+
+    @Value("${report.dir:reports}")
+    private String dir;
+
+    @Value("${report.workers:2}")
+    private int workerThreads;
+
+    @Value("${report.section-threads:4}")
+    private int sectionThreads;
+
+    @Value("${report.open-day-ttl-seconds:300}")
+    private long openDayTtlSeconds;
+
+    @Value("${report.job-retention-minutes:60}")
+    private long jobRetentionMinutes;
+
+    @Value("${analytics.closed-day-grace-days:2}")
+    private int closedDayGraceDays;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // Guarded by itself
+    private final Map<LocalDate, Job> inFlight = new LinkedHashMap<>();
+    private Path root;
+    private ExecutorService workers;
+    // Separate from the workers, so a job waiting on its sections never starves them
+    private ExecutorService sections;
+
+    public ReportService(AnalyticsService analyticsService) {
+        this.analyticsService = analyticsService;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        root = Paths.get(dir).toAbsolutePath();
+        Files.createDirectories(root);
+        workers = Executors.newFixedThreadPool(workerThreads, daemon("report-worker-"));
+        sections = Executors.newFixedThreadPool(sectionThreads, daemon("report-section-"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+        sections.shutdownNow();
+    }
+
+    /**
+     * The job producing the daily report for {@code day}: already finished when
+     * a current file exists, otherwise queued or joined to one in progress.
+     */
+    public Job submit(LocalDate day) {
+        if (day.isAfter(LocalDate.now())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Report date is in the future");
+        }
+        Path file = current(day);
+        if (file != null) {
+            Job job = new Job(day);
+            job.finish(file);
+            jobs.put(job.id, job);
+            return job;
+        }
+        synchronized (inFlight) {
+            Job running = inFlight.get(day);
+            if (running != null) return running;
+            Job job = new Job(day);
+            inFlight.put(day, job);
+            jobs.put(job.id, job);
+            try {
+                workers.execute(() -> run(job));
+            } catch (RuntimeException e) {
+                inFlight.remove(day);
+                job.fail(e);
+            }
+            return job;
+        }
+    }
+
+    public Job job(String id) {
+        Job job = jobs.get(id);
+        if (job == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Report job not found");
+        return job;
+    }
+
+    /**
+     * Wait up to {@code timeoutMs} for the job's file; null if it is still running.
+     */
+    public Path await(Job job, long timeoutMs) {
+        try {
+            return job.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Report failed: " + job.error);
+        }
+    }
+
+    /**
+     * A validator for the file that changes whenever it is re-rendered.
+     */
+    public static String etag(Path file) throws IOException {
+        return "\"" + file.getFileName() + "-" + Files.getLastModifiedTime(file).toMillis()
+                + "-" + Files.size(file) + "\"";
+    }
+
+    // Finished jobs are only kept so that clients can poll and download them
+    @Scheduled(fixedDelayString = "${report.cleanup-ms:60000}")
+    public void cleanup() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(jobRetentionMinutes);
+        jobs.values().removeIf(j -> j.finishedAt != null && j.finishedAt.isBefore(cutoff));
+    }
+
+    private void run(Job job) {
+        job.status = Status.RUNNING;
+        try {
+            job.finish(render(job.day));
+        } catch (Exception e) {
+            System.out.println("Report for " + job.day + " failed: " + e.getMessage());
+            job.fail(e);
+        } finally {
+            synchronized (inFlight) {
+                inFlight.remove(job.day);
+            }
+        }
+    }
+
+    // The file for the day if it can be served as is
+    private Path current(LocalDate day) {
+        Path file = file(day);
+        if (!Files.isRegularFile(file)) return null;
+        if (closed(day)) return file;
+        try {
+            long age = System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis();
+            return age < openDayTtlSeconds * 1000 ? file : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Path file(LocalDate day) {
+        // rendered before the day was closed, so kept apart from the final report
+        return root.resolve("daily-report-" + day + (closed(day) ? "" : ".partial") + ".pdf");
+    }
+
+    // Same grace as the approval counts in AnalyticsService
+    private boolean closed(LocalDate day) {
+        return !day.isAfter(LocalDate.now().minusDays(Math.max(1, closedDayGraceDays)));
+    }
+
+    private Path render(LocalDate d) throws IOException, DocumentException {
+        // decide closed or not before querying, so a report started before the day closes is never kept as final
+        Path target = file(d);
+        LocalDate last7From = d.minusDays(6);
+        LocalDate mtdFrom = d.withDayOfMonth(1);
+        LocalDate ytdFrom = d.withDayOfYear(1);
+
+        CompletableFuture<Map<String, Object>> kpisDay = section(() -> analyticsService.getKpis(d, d));
+        CompletableFuture<List<Map<String, Object>>> bookingsSeries = section(() -> analyticsService.getSeriesBookings(d, d, "hour"));
+        CompletableFuture<List<Map<String, Object>>> revenueSeries = section(() -> analyticsService.getSeriesRevenue(d, d, "hour"));
+        CompletableFuture<List<Map<String, Object>>> last7Bookings = section(() -> analyticsService.getSeriesBookings(last7From, d, "day"));
+        CompletableFuture<List<Map<String, Object>>> last7Revenue = section(() -> analyticsService.getSeriesRevenue(last7From, d, "day"));
+        CompletableFuture<Map<String, Object>> kpisMtd = section(() -> analyticsService.getKpis(mtdFrom, d));
+        CompletableFuture<Map<String, Object>> kpisYtd = section(() -> analyticsService.getKpis(ytdFrom, d));
+
+        Path tmp = Files.createTempFile(root, "daily-report-" + d, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                Document doc = new Document();
+                PdfWriter.getInstance(doc, out);
+                doc.open();
+
+                doc.add(new Paragraph("Movie Platform Daily Report - " + d));
+                kpis(doc, "\nKPIs:", join(kpisDay));
+
+                series(doc, "\nHourly Bookings:", join(bookingsSeries));
+                series(doc, "\nHourly Revenue:", join(revenueSeries));
+
+                // Last 7 days daily series
+                series(doc, "\nLast 7 Days - Daily Bookings (" + last7From + " to " + d + "):", join(last7Bookings));
+                series(doc, "\nLast 7 Days - Daily Revenue (" + last7From + " to " + d + "):", join(last7Revenue));
+
+                // Month-to-date and Year-to-date KPIs
+                kpis(doc, "\nMonth-to-Date KPIs (" + mtdFrom + " to " + d + "):", join(kpisMtd));
+                kpis(doc, "\nYear-to-Date KPIs (" + ytdFrom + " to " + d + "):", join(kpisYtd));
+
+                doc.close();
+            }
+            // readers never see a half-written file
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return target;
+    }
+
+    private void kpis(Document doc, String title, Map<String, Object> resp) throws DocumentException {
+        @SuppressWarnings("unchecked") Map<String, Object> k = (Map<String, Object>) resp.get("kpis");
+        doc.add(new Paragraph(title));
+        doc.add(new Paragraph("  Bookings: " + ((Map<?,?>)k.get("bookings")).get("count")));
+        doc.add(new Paragraph("  Revenue: " + ((Map<?,?>)k.get("revenue")).get("total")));
+        doc.add(new Paragraph("  DAU: " + k.get("dau")));
+        doc.add(new Paragraph("  WAU: " + k.get("wau")));
+        doc.add(new Paragraph("  MAU: " + k.get("mau")));
+        doc.add(new Paragraph("  Approval Rate: " + k.get("approvalRate")));
+    }
+
+    private void series(Document doc, String title, List<Map<String, Object>> points) throws DocumentException {
+        doc.add(new Paragraph(title));
+        for (Map<String, Object> p : points) {
+            doc.add(new Paragraph("  " + p.get("t") + " -> " + p.get("v")));
+        }
+    }
+
+    private <T> CompletableFuture<T> section(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(query, sections);
+    }
+
+    private static <T> T join(CompletableFuture<T> section) {
+        try {
+            return section.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    public static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final LocalDate day;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        final CompletableFuture<Path> result = new CompletableFuture<>();
+        volatile Status status = Status.QUEUED;
+        volatile String error;
+        volatile LocalDateTime finishedAt;
+
+        Job(LocalDate day) {
+            this.day = day;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public Path getFile() {
+            return result.getNow(null);
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("id", id);
+            m.put("date", day.toString());
+            m.put("status", status.name());
+            m.put("createdAt", createdAt.toString());
+            if (finishedAt != null) m.put("finishedAt", finishedAt.toString());
+            if (error != null) m.put("error", error);
+            return m;
+        }
+
+        void finish(Path file) {
+            status = Status.DONE;
+            finishedAt = LocalDateTime.now();
+            result.complete(file);
+        }
+
+        void fail(Exception e) {
+            error = e.getMessage();
+            status = Status.FAILED;
+            finishedAt = LocalDateTime.now();
+            result.completeExceptionally(e);
+        }
+    }
+}
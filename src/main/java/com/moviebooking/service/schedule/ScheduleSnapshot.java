@@ -0,0 +1,56 @@
+package com.moviebooking.service.schedule;
+
+import com.moviebooking.dto.ScheduleRow;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable copy of a schedule row, detached from the query that read it, with
+ * its own seat count.
+ */
+final class ScheduleSnapshot implements ScheduleRow {
+    private final Long id;
+    private final Long movieId;
+    private final String movieTitle;
+    private final Long theaterId;
+    private final String theaterName;
+    private final LocalDateTime showTime;
+    private final BigDecimal price;
+    private final Integer availableSeats;
+    private final Integer totalSeats;
+    private final Boolean active;
+    private final LocalDateTime createdAt;
+    private final String screenNumber;
+    private final String additionalInfo;
+
+    ScheduleSnapshot(ScheduleRow r, Integer availableSeats) {
+        this.id = r.getId();
+        this.movieId = r.getMovieId();
+        this.movieTitle = r.getMovieTitle();
+        this.theaterId = r.getTheaterId();
+        this.theaterName = r.getTheaterName();
+        this.showTime = r.getShowTime();
+        this.price = r.getPrice();
+        this.availableSeats = availableSeats;
+        this.totalSeats = r.getTotalSeats();
+        this.active = r.getActive();
+        this.createdAt = r.getCreatedAt();
+        this.screenNumber = r.getScreenNumber();
+        this.additionalInfo = r.getAdditionalInfo();
+    }
+
+    @Override public Long getId() { return id; }
+    @Override public Long getMovieId() { return movieId; }
+    @Override public String getMovieTitle() { return movieTitle; }
+    @Override public Long getTheaterId() { return theaterId; }
+    @Override public String getTheaterName() { return theaterName; }
+    @Override public LocalDateTime getShowTime() { return showTime; }
+    @Override public BigDecimal getPrice() { return price; }
+    @Override public Integer getAvailableSeats() { return availableSeats; }
+    @Override public Integer getTotalSeats() { return totalSeats; }
+    @Override public Boolean getActive() { return active; }
+    @Override public LocalDateTime getCreatedAt() { return createdAt; }
+    @Override public String getScreenNumber() { return screenNumber; }
+    @Override public String getAdditionalInfo() { return additionalInfo; }
+}
@@ -0,0 +1,186 @@
+package com.moviebooking.service.schedule;
+
+import com.moviebooking.dto.ScheduleRow;
+import com.moviebooking.entity.Schedule;
+import com.moviebooking.repository.ScheduleRepository;
+import com.moviebooking.service.SeatInventoryService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of the active showtime lists that browse traffic asks
+ * for, per movie and per theater; time ranges are answered by
+ * {@link ShowtimeIndex}. Entries are evicted by schedule edits for exactly the
+ * movie and theater they touch, and otherwise expire after a TTL.
+ *
+ * Seat counts are not part of what is cached: they are overlaid on every read
+ * from {@link SeatInventoryService}'s in-memory counters, which bookings,
+ * holds and cancellations already move, so a booking never evicts anything.
+ * A show without a counter falls back to the cached count, so a list holding
+ * one is kept for at most {@code showtime.cache.seat-fallback-ttl-seconds}.
+ *
+ * Eviction and the seat counters are local to this JVM: with more than one
+ * node, another node's edits and bookings only show once the TTLs run out.
+ */
+@Service
+public class ShowtimeCache {
+
+    private static final int STRIPES = 64;
+
+    private final ScheduleRepository scheduleRepository;
+    private final SeatInventoryService seatInventory;
+
+    @Value("${showtime.cache.max-entries:5000}")
+    private int maxEntries;
+
+    @Value("${showtime.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${showtime.cache.seat-fallback-ttl-seconds:15}")
+    private long seatFallbackTtlSeconds;
+
+    // Guarded by itself; least recently used evicted first
+    private Map<Key, Entry> entries;
+    // Bumped by every eviction of a key in the stripe, so a load that raced with one is not stored
+    private final long[] generations = new long[STRIPES];
+
+    public ShowtimeCache(ScheduleRepository scheduleRepository, SeatInventoryService seatInventory) {
+        this.scheduleRepository = scheduleRepository;
+        this.seatInventory = seatInventory;
+    }
+
+    @PostConstruct
+    void init() {
+        int max = maxEntries;
+        entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > max;
+            }
+        };
+    }
+
+    public List<ScheduleRow> byMovie(Long movieId) {
+        return withSeats(get(new Key('M', movieId), () -> scheduleRepository.findRowsByMovieIdAndActiveTrue(movieId)));
+    }
+
+    public List<ScheduleRow> byTheater(Long theaterId) {
+        return withSeats(get(new Key('T', theaterId), () -> scheduleRepository.findRowsByTheaterIdAndActiveTrue(theaterId)));
+    }
+
+    /**
+     * Forget the lists a schedule appears in. Call after the change is saved;
+     * for an edit that moves a show, also with its previous movie and theater.
+     */
+    public void evict(Long movieId, Long theaterId) {
+        List<Key> keys = new ArrayList<>(2);
+        if (movieId != null) keys.add(new Key('M', movieId));
+        if (theaterId != null) keys.add(new Key('T', theaterId));
+        synchronized (entries) {
+            for (Key key : keys) {
+                entries.remove(key);
+                generations[key.stripe()]++;
+            }
+        }
+    }
+
+    public void evict(Schedule s) {
+        evict(s.getMovie() != null ? s.getMovie().getId() : null,
+                s.getTheater() != null ? s.getTheater().getId() : null);
+    }
+
+    /**
+     * Drop everything, e.g. after a movie or theater was renamed.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            for (int i = 0; i < STRIPES; i++) generations[i]++;
+        }
+    }
+
+    private List<ScheduleRow> get(Key key, Supplier<List<ScheduleRow>> loader) {
+        long now = System.currentTimeMillis();
+        long generation;
+        Entry cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+            generation = generations[key.stripe()];
+        }
+        if (cached != null && cached.expiresAt > now
+                && (now - cached.loadedAt < seatFallbackTtlSeconds * 1000 || counted(cached.rows))) {
+            return cached.rows;
+        }
+        List<ScheduleRow> rows = new ArrayList<>();
+        // copied, so that cached rows hold no reference to the query's tuples
+        for (ScheduleRow row : loader.get()) rows.add(new ScheduleSnapshot(row, row.getAvailableSeats()));
+        rows = List.copyOf(rows);
+        synchronized (entries) {
+            if (generations[key.stripe()] == generation) {
+                entries.put(key, new Entry(rows, now, now + ttlSeconds * 1000));
+            }
+        }
+        return rows;
+    }
+
+    // Whether every show has a live seat counter, i.e. no cached seat count is served
+    private boolean counted(List<ScheduleRow> rows) {
+        for (ScheduleRow row : rows) {
+            if (seatInventory.peek(row.getId()) == null) return false;
+        }
+        return true;
+    }
+
+    private List<ScheduleRow> withSeats(List<ScheduleRow> rows) {
+        List<ScheduleRow> out = new ArrayList<>(rows.size());
+        for (ScheduleRow row : rows) {
+            Integer live = seatInventory.peek(row.getId());
+            out.add(live == null || live.equals(row.getAvailableSeats()) ? row : new ScheduleSnapshot(row, live));
+        }
+        return out;
+    }
+
+    private static final class Key {
+        final char kind;
+        final long id;
+
+        Key(char kind, long id) {
+            this.kind = kind;
+            this.id = id;
+        }
+
+        int stripe() {
+            return Math.floorMod(hashCode(), STRIPES);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && kind == k.kind && id == k.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, id);
+        }
+    }
+
+    private static final class Entry {
+        final List<ScheduleRow> rows;
+        final long loadedAt;
+        final long expiresAt;
+
+        Entry(List<ScheduleRow> rows, long loadedAt, long expiresAt) {
+            this.rows = rows;
+            this.loadedAt = loadedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
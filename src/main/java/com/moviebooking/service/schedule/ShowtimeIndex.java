@@ -0,0 +1,339 @@
+package com.moviebooking.service.schedule;
+
+import com.moviebooking.dto.ScheduleRow;
+import com.moviebooking.repository.ScheduleRepository;
+import com.moviebooking.service.SeatInventoryService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Every active show in a window around now, held in memory as arrays sorted by
+ * show time: one over all theaters and one per theater. The sort key is the
+ * epoch minute, kept in an int[] next to the rows, so a time range is a binary
+ * search to its first show and a walk to its last, without a database round
+ * trip. Ranges reaching outside the window, or asked before the first load
+ * finished, go to the database.
+ *
+ * The arrays are never changed in place: a schedule edit builds new ones for
+ * the theater it touches and swaps in a new snapshot, so readers never lock.
+ * Edits are applied once their transaction commits; a periodic reload moves
+ * the window along and heals anything an edit racing with another missed.
+ * Rows also copy their movie title and theater name, so renaming or deleting
+ * either reloads the whole window through {@link #reloadAll()}. Seat counts are overlaid on read from {@link SeatInventoryService}.
+ */
+@Service
+public class ShowtimeIndex {
+
+    private final ScheduleRepository scheduleRepository;
+    private final SeatInventoryService seatInventory;
+
+    @Value("${showtime.index.past-days:31}")
+    private int pastDays;
+
+    @Value("${showtime.index.future-days:366}")
+    private int futureDays;
+
+    private volatile Snapshot snapshot;
+    // Guarded by this; schedules edited while a reload was reading, to apply again on top of it
+    private Set<Long> editedDuringLoad;
+    // Held for a whole reload, so a scheduled one and a requested one never overlap
+    private final Object loading = new Object();
+    private final AtomicBoolean reloadPending = new AtomicBoolean();
+    private final ExecutorService reloader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "showtime-index-reload");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ShowtimeIndex(ScheduleRepository scheduleRepository, SeatInventoryService seatInventory) {
+        this.scheduleRepository = scheduleRepository;
+        this.seatInventory = seatInventory;
+    }
+
+    /**
+     * Active shows between {@code start} and {@code end} inclusive, ordered by
+     * show time, at one theater or, with a null theater, anywhere.
+     */
+    public List<ScheduleRow> between(LocalDateTime start, LocalDateTime end, Long theaterId) {
+        Snapshot s = snapshot;
+        if (s == null || !s.covers(start, end)) {
+            return theaterId != null
+                    ? scheduleRepository.findRowsByTheaterIdAndShowTimeBetweenAndActiveTrue(theaterId, start, end)
+                    : scheduleRepository.findRowsByShowTimeBetweenAndActiveTrue(start, end);
+        }
+        Partition p = theaterId != null ? s.byTheater.getOrDefault(theaterId, Partition.EMPTY) : s.all;
+        int last = minute(end);
+        List<ScheduleRow> out = new ArrayList<>();
+        for (int i = p.first(start); i < p.rows.length && p.minutes[i] <= last; i++) {
+            ScheduleSnapshot row = p.rows[i];
+            if (row.getShowTime().isBefore(start) || row.getShowTime().isAfter(end)) continue;
+            Integer live = seatInventory.peek(row.getId());
+            out.add(live == null || live.equals(row.getAvailableSeats()) ? row : new ScheduleSnapshot(row, live));
+        }
+        return out;
+    }
+
+    /**
+     * Total and sold seats of the active shows between {@code start} and
+     * {@code end} inclusive, as {total, sold}.
+     */
+    public long[] seats(LocalDateTime start, LocalDateTime end, Long theaterId) {
+        Snapshot s = snapshot;
+        if (theaterId == null && (s == null || !s.covers(start, end))) {
+            Object[] sums = scheduleRepository.sumSeatsByShowTimeBetween(start, end).get(0);
+            return new long[]{((Number) sums[0]).longValue(), ((Number) sums[1]).longValue()};
+        }
+        long total = 0;
+        long sold = 0;
+        for (ScheduleRow row : between(start, end, theaterId)) {
+            int seats = row.getTotalSeats() != null ? row.getTotalSeats() : 0;
+            int available = row.getAvailableSeats() != null ? row.getAvailableSeats() : 0;
+            total += seats;
+            sold += Math.max(0, seats - available);
+        }
+        return new long[]{total, sold};
+    }
+
+    /**
+     * Re-read one schedule into the index, or drop it if it is gone or inactive.
+     * Inside a transaction this waits for the commit.
+     */
+    public void refresh(Long scheduleId) {
+        if (scheduleId == null) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload(scheduleId);
+                }
+            });
+        } else {
+            reload(scheduleId);
+        }
+    }
+
+    /**
+     * Reload the whole window in the background, e.g. after a movie or theater
+     * was renamed or deleted. Calls made before the reload starts share it.
+     */
+    public void reloadAll() {
+        if (!reloadPending.compareAndSet(false, true)) return;
+        reloader.execute(() -> {
+            reloadPending.set(false);
+            load();
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        reloader.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            resync();
+        } catch (Exception e) {
+            System.out.println("Could not load the showtime index: " + e.getMessage());
+        }
+    }
+
+    // Moves the window along with the clock and replaces whatever edits left behind
+    @Scheduled(initialDelayString = "${showtime.index.resync-ms:600000}", fixedDelayString = "${showtime.index.resync-ms:600000}")
+    public void resync() {
+        synchronized (loading) {
+            synchronized (this) {
+                editedDuringLoad = new HashSet<>();
+            }
+            Set<Long> edited;
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                LocalDateTime from = now.toLocalDate().minusDays(pastDays).atStartOfDay();
+                LocalDateTime until = now.toLocalDate().plusDays(futureDays + 1L).atStartOfDay();
+                Snapshot loaded = Snapshot.of(from, until, scheduleRepository.findActiveRowsFromUntil(from, until));
+                synchronized (this) {
+                    snapshot = loaded;
+                    edited = editedDuringLoad;
+                }
+            } finally {
+                synchronized (this) {
+                    editedDuringLoad = null;
+                }
+            }
+            for (Long id : edited) reload(id);
+        }
+    }
+
+    private void reload(Long scheduleId) {
+        synchronized (this) {
+            if (editedDuringLoad != null) editedDuringLoad.add(scheduleId);
+        }
+        try {
+            ScheduleRow row = scheduleRepository.findRowById(scheduleId)
+                    .filter(r -> Boolean.TRUE.equals(r.getActive()) && r.getShowTime() != null)
+                    .orElse(null);
+            ScheduleSnapshot copy = row != null ? new ScheduleSnapshot(row, row.getAvailableSeats()) : null;
+            synchronized (this) {
+                if (snapshot != null) snapshot = snapshot.with(scheduleId, copy);
+            }
+        } catch (Exception e) {
+            System.out.println("Could not refresh schedule " + scheduleId + " in the showtime index: " + e.getMessage());
+        }
+    }
+
+    // Minutes since the epoch, reading show times as UTC; only the order matters
+    private static int minute(LocalDateTime t) {
+        return (int) Math.floorDiv(t.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static final class Snapshot {
+        final LocalDateTime from;
+        final LocalDateTime until;
+        final Map<Long, ScheduleSnapshot> byId;
+        final Partition all;
+        final Map<Long, Partition> byTheater;
+
+        Snapshot(LocalDateTime from, LocalDateTime until, Map<Long, ScheduleSnapshot> byId,
+                 Partition all, Map<Long, Partition> byTheater) {
+            this.from = from;
+            this.until = until;
+            this.byId = byId;
+            this.all = all;
+            this.byTheater = byTheater;
+        }
+
+        // Rows arrive ordered by show time and id, as findActiveRowsFromUntil returns them
+        static Snapshot of(LocalDateTime from, LocalDateTime until, List<ScheduleRow> rows) {
+            Map<Long, ScheduleSnapshot> byId = new HashMap<>(rows.size() * 2);
+            List<ScheduleSnapshot> all = new ArrayList<>(rows.size());
+            Map<Long, List<ScheduleSnapshot>> theaters = new HashMap<>();
+            for (ScheduleRow row : rows) {
+                ScheduleSnapshot copy = new ScheduleSnapshot(row, row.getAvailableSeats());
+                byId.put(copy.getId(), copy);
+                all.add(copy);
+                if (copy.getTheaterId() != null) {
+                    theaters.computeIfAbsent(copy.getTheaterId(), k -> new ArrayList<>()).add(copy);
+                }
+            }
+            Map<Long, Partition> byTheater = new HashMap<>(theaters.size() * 2);
+            for (Map.Entry<Long, List<ScheduleSnapshot>> e : theaters.entrySet()) {
+                byTheater.put(e.getKey(), Partition.of(e.getValue()));
+            }
+            return new Snapshot(from, until, byId, Partition.of(all), byTheater);
+        }
+
+        boolean covers(LocalDateTime start, LocalDateTime end) {
+            return !start.isBefore(from) && end.isBefore(until);
+        }
+
+        // The snapshot with the schedule replaced by {@code row}, or removed when row is null
+        Snapshot with(Long id, ScheduleSnapshot row) {
+            ScheduleSnapshot old = byId.get(id);
+            if (row != null && (row.getShowTime().isBefore(from) || !row.getShowTime().isBefore(until))) row = null;
+            if (old == null && row == null) return this;
+            Map<Long, ScheduleSnapshot> ids = new HashMap<>(byId);
+            Map<Long, Partition> theaters = new HashMap<>(byTheater);
+            Partition everywhere = all;
+            if (old != null) {
+                ids.remove(id);
+                everywhere = everywhere.without(old);
+                Partition p = theaters.get(old.getTheaterId());
+                if (p != null) {
+                    p = p.without(old);
+                    if (p.rows.length == 0) theaters.remove(old.getTheaterId()); else theaters.put(old.getTheaterId(), p);
+                }
+            }
+            if (row != null) {
+                ids.put(id, row);
+                everywhere = everywhere.with(row);
+                if (row.getTheaterId() != null) {
+                    theaters.put(row.getTheaterId(), theaters.getOrDefault(row.getTheaterId(), Partition.EMPTY).with(row));
+                }
+            }
+            return new Snapshot(from, until, ids, everywhere, theaters);
+        }
+    }
+
+    // Rows sorted by (show time, id), with their epoch minutes in a parallel array
+    private static final class Partition {
+        static final Partition EMPTY = new Partition(new int[0], new ScheduleSnapshot[0]);
+
+        final int[] minutes;
+        final ScheduleSnapshot[] rows;
+
+        Partition(int[] minutes, ScheduleSnapshot[] rows) {
+            this.minutes = minutes;
+            this.rows = rows;
+        }
+
+        static Partition of(List<ScheduleSnapshot> sorted) {
+            int[] minutes = new int[sorted.size()];
+            for (int i = 0; i < minutes.length; i++) minutes[i] = minute(sorted.get(i).getShowTime());
+            return new Partition(minutes, sorted.toArray(new ScheduleSnapshot[0]));
+        }
+
+        // Index of the first row in the minute of {@code t} or later
+        int first(LocalDateTime t) {
+            int key = minute(t);
+            int lo = 0;
+            int hi = minutes.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (minutes[mid] < key) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        Partition with(ScheduleSnapshot row) {
+            int i = first(row.getShowTime());
+            while (i < rows.length && before(rows[i], row)) i++;
+            int[] m = new int[minutes.length + 1];
+            ScheduleSnapshot[] r = new ScheduleSnapshot[rows.length + 1];
+            System.arraycopy(minutes, 0, m, 0, i);
+            System.arraycopy(rows, 0, r, 0, i);
+            m[i] = minute(row.getShowTime());
+            r[i] = row;
+            System.arraycopy(minutes, i, m, i + 1, minutes.length - i);
+            System.arraycopy(rows, i, r, i + 1, rows.length - i);
+            return new Partition(m, r);
+        }
+
+        Partition without(ScheduleSnapshot row) {
+            int i = first(row.getShowTime());
+            while (i < rows.length && !rows[i].getId().equals(row.getId())) {
+                if (minutes[i] > minute(row.getShowTime())) return this;
+                i++;
+            }
+            if (i == rows.length) return this;
+            int[] m = Arrays.copyOf(minutes, minutes.length - 1);
+            ScheduleSnapshot[] r = Arrays.copyOf(rows, rows.length - 1);
+            System.arraycopy(minutes, i + 1, m, i, minutes.length - i - 1);
+            System.arraycopy(rows, i + 1, r, i, rows.length - i - 1);
+            return new Partition(m, r);
+        }
+
+        private static boolean before(ScheduleSnapshot a, ScheduleSnapshot b) {
+            int c = a.getShowTime().compareTo(b.getShowTime());
+            return c < 0 || (c == 0 && a.getId() < b.getId());
+        }
+    }
+}
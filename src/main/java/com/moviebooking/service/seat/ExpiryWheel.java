@@ -0,0 +1,93 @@
+package com.moviebooking.service.seat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel. Adding an item is a lock-free enqueue; each tick only
+ * visits the one bucket whose slot has come round, so cost per tick does not
+ * grow with the number of outstanding items. Items that are due on the same
+ * tick are handed to the callback together.
+ */
+public class ExpiryWheel<T> {
+
+    private static final class Entry<T> {
+        final T item;
+        final long deadlineTick;
+
+        Entry(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<Queue<Entry<T>>> buckets;
+    // Producers only touch this queue; buckets belong to the tick thread
+    private final Queue<Entry<T>> incoming = new ConcurrentLinkedQueue<>();
+    private final Consumer<List<T>> onExpired;
+    private final ScheduledExecutorService ticker;
+    private final long startMillis;
+    private long tick;
+
+    public ExpiryWheel(String name, long tickMillis, int wheelSize, Consumer<List<T>> onExpired) {
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) buckets.add(new ArrayDeque<>());
+        this.onExpired = onExpired;
+        this.startMillis = System.currentTimeMillis();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void start() {
+        ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Schedule {@code item} to expire at {@code deadlineMillis} (epoch millis).
+     * Deadlines in the past fire on the next tick.
+     */
+    public void add(T item, long deadlineMillis) {
+        long deadlineTick = (deadlineMillis - startMillis + tickMillis - 1) / tickMillis;
+        incoming.add(new Entry<>(item, deadlineTick));
+    }
+
+    private void advance() {
+        long now = ++tick;
+        for (Entry<T> e; (e = incoming.poll()) != null; ) {
+            long due = Math.max(e.deadlineTick, now);
+            buckets.get((int) (due & mask)).add(e);
+        }
+        Queue<Entry<T>> bucket = buckets.get((int) (now & mask));
+        List<T> expired = new ArrayList<>();
+        for (int n = bucket.size(); n > 0; n--) {
+            Entry<T> e = bucket.poll();
+            // later rounds of the wheel stay in the bucket
+            if (e.deadlineTick <= now) expired.add(e.item); else bucket.add(e);
+        }
+        if (expired.isEmpty()) return;
+        try {
+            onExpired.accept(expired);
+        } catch (RuntimeException ignored) {
+            // the callback owns retries; never let the ticker die
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.moviebooking.service.seat;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Fixed-size bitset over seat indexes (row * columns + column), packed into longs.
+ * A 1000-seat hall needs 16 words, i.e. 128 bytes.
+ */
+public final class SeatBitmap {
+
+    private final long[] words;
+    private final int size;
+
+    public SeatBitmap(int size) {
+        this.size = size;
+        this.words = new long[wordCount(size)];
+    }
+
+    private SeatBitmap(int size, long[] words) {
+        this.size = size;
+        this.words = words;
+    }
+
+    public static int wordCount(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    public static int byteCount(int size) {
+        return wordCount(size) * Long.BYTES;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int i) {
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    public void set(int i) {
+        words[i >>> 6] |= 1L << i;
+    }
+
+    public void clear(int i) {
+        words[i >>> 6] &= ~(1L << i);
+    }
+
+    public int cardinality() {
+        int n = 0;
+        for (long w : words) n += Long.bitCount(w);
+        return n;
+    }
+
+    /**
+     * Pick {@code count} seats that are clear in both this and {@code other}, preferring
+     * a contiguous run within one row; otherwise the lowest free indexes. One pass over
+     * the words, returns null when there are not enough free seats.
+     */
+    public int[] allocate(SeatBitmap other, int count, int columns) {
+        int[] first = new int[count];
+        int found = 0;
+        int runStart = -1;
+        int runLength = 0;
+        for (int w = 0; w < words.length; w++) {
+            long free = ~(words[w] | other.words[w]);
+            if (w == words.length - 1 && (size & 63) != 0) {
+                free &= (1L << size) - 1;
+            }
+            while (free != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(free);
+                free &= free - 1;
+                if (found < count) first[found++] = i;
+                if (runLength > 0 && i == runStart + runLength && i / columns == runStart / columns) {
+                    runLength++;
+                } else {
+                    runStart = i;
+                    runLength = 1;
+                }
+                if (runLength == count) {
+                    int[] run = new int[count];
+                    for (int k = 0; k < count; k++) run[k] = runStart + k;
+                    return run;
+                }
+            }
+        }
+        return found == count ? first : null;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buf = ByteBuffer.allocate(words.length * Long.BYTES);
+        for (long w : words) buf.putLong(w);
+        return buf.array();
+    }
+
+    /**
+     * Read a bitmap from {@code bytes} starting at {@code offset}; missing bytes read as clear.
+     */
+    public static SeatBitmap fromBytes(byte[] bytes, int offset, int size) {
+        long[] words = new long[wordCount(size)];
+        if (bytes != null) {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            for (int w = 0; w < words.length && offset + (w + 1) * Long.BYTES <= bytes.length; w++) {
+                words[w] = buf.getLong(offset + w * Long.BYTES);
+            }
+        }
+        return new SeatBitmap(size, words);
+    }
+
+    public SeatBitmap copy() {
+        return new SeatBitmap(size, Arrays.copyOf(words, words.length));
+    }
+}
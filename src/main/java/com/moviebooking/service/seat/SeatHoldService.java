@@ -0,0 +1,196 @@
+package com.moviebooking.service.seat;
+
+import com.moviebooking.entity.Booking;
+import com.moviebooking.repository.BookingRepository;
+import com.moviebooking.service.BookingService;
+import com.moviebooking.service.SeatInventoryService;
+import com.moviebooking.service.analytics.BookingRollupService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Expires seat holds. Each hold is put on an in-memory timing wheel when its
+ * transaction commits, and reloaded from the bookings table on startup. Holds
+ * that fall due on the same tick are released together, with one seat counter
+ * update per schedule, on a worker thread so a slow batch never holds up the
+ * wheel. A slow sweep of the bookings table picks up holds this node never
+ * saw, e.g. ones taken on another node that went away.
+ */
+@Service
+public class SeatHoldService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final BookingRepository bookingRepository;
+    private final SeatInventoryService seatInventory;
+    private final SeatMapService seatMapService;
+    private final BookingRollupService rollupService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${booking.hold.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${booking.hold.wheel-size:512}")
+    private int wheelSize;
+
+    @Value("${booking.hold.retry-delay-ms:5000}")
+    private long retryDelayMs;
+
+    private ExpiryWheel<Long> wheel;
+    private ExecutorService expirer;
+    private final AtomicLong expired = new AtomicLong();
+
+    public SeatHoldService(BookingRepository bookingRepository,
+                           SeatInventoryService seatInventory,
+                           SeatMapService seatMapService,
+                           BookingRollupService rollupService,
+                           PlatformTransactionManager transactionManager) {
+        this.bookingRepository = bookingRepository;
+        this.seatInventory = seatInventory;
+        this.seatMapService = seatMapService;
+        this.rollupService = rollupService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        expirer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "seat-hold-expirer");
+            t.setDaemon(true);
+            return t;
+        });
+        wheel = new ExpiryWheel<>("seat-hold-expiry", tickMs, wheelSize, this::submit);
+        wheel.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.stop();
+        expirer.shutdownNow();
+    }
+
+    /**
+     * Schedule a hold for expiry once the current transaction commits.
+     */
+    public void track(Long bookingId, LocalDateTime expiresAt) {
+        long deadline = toMillis(expiresAt);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wheel.add(bookingId, deadline);
+                }
+            });
+        } else {
+            wheel.add(bookingId, deadline);
+        }
+    }
+
+    public long expiredCount() {
+        return expired.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        for (Object[] row : bookingRepository.findIdAndHoldExpiryByStatus(Booking.Status.HELD)) {
+            LocalDateTime expiresAt = (LocalDateTime) row[1];
+            wheel.add((Long) row[0], expiresAt != null ? toMillis(expiresAt) : 0L);
+        }
+    }
+
+    // Holds already past expiry in the table; expiring one twice is harmless, the second finds it no longer HELD
+    @Scheduled(initialDelayString = "${booking.hold.sweep-ms:60000}", fixedDelayString = "${booking.hold.sweep-ms:60000}")
+    public void sweep() {
+        try {
+            // a couple of ticks behind now, so holds this node's wheel is about to expire are left to it
+            List<Long> due = bookingRepository.findIdsByStatusAndHoldExpiresAtBefore(Booking.Status.HELD,
+                    LocalDateTime.now().minus(Duration.ofMillis(tickMs * 2)));
+            if (!due.isEmpty()) submit(due);
+        } catch (RuntimeException e) {
+            System.out.println("Seat hold sweep failed: " + e.getMessage());
+        }
+    }
+
+    // Called on the wheel's tick thread and by the sweep; the database work runs on the expirer
+    private void submit(List<Long> bookingIds) {
+        try {
+            expirer.execute(() -> expire(bookingIds));
+        } catch (RejectedExecutionException e) {
+            // shutting down; the next start reloads them
+        }
+    }
+
+    private void expire(List<Long> bookingIds) {
+        for (int from = 0; from < bookingIds.size(); from += BATCH_SIZE) {
+            List<Long> batch = bookingIds.subList(from, Math.min(from + BATCH_SIZE, bookingIds.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> expireBatch(batch));
+            } catch (RuntimeException e) {
+                System.out.println("Seat hold expiry failed, retrying " + batch.size() + " holds: " + e.getMessage());
+                long retryAt = System.currentTimeMillis() + retryDelayMs;
+                for (Long id : batch) wheel.add(id, retryAt);
+            }
+        }
+    }
+
+    // Locks the still-held bookings, then gives their seats back per schedule
+    private void expireBatch(List<Long> bookingIds) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Integer> seatsBySchedule = new LinkedHashMap<>();
+        Map<Long, List<String>> labelsBySchedule = new LinkedHashMap<>();
+        int holds = 0;
+        for (Booking booking : bookingRepository.lockByIdInAndStatus(bookingIds, Booking.Status.HELD)) {
+            if (booking.getHoldExpiresAt() != null && booking.getHoldExpiresAt().isAfter(now)) {
+                // expiry moved on; come back for it later
+                track(booking.getId(), booking.getHoldExpiresAt());
+                continue;
+            }
+            Long scheduleId = booking.getSchedule().getId();
+            seatsBySchedule.merge(scheduleId, booking.getSeatsCount(), Integer::sum);
+            labelsBySchedule.computeIfAbsent(scheduleId, k -> new ArrayList<>())
+                    .addAll(BookingService.seatList(booking));
+            booking.setStatus(Booking.Status.EXPIRED);
+            booking.setHoldExpiresAt(null);
+            rollupService.moved(booking, Booking.Status.HELD);
+            holds++;
+        }
+        for (Map.Entry<Long, Integer> e : seatsBySchedule.entrySet()) {
+            seatInventory.release(e.getKey(), e.getValue());
+            seatMapService.free(e.getKey(), labelsBySchedule.get(e.getKey()), false);
+        }
+        if (holds > 0) {
+            int count = holds;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    expired.addAndGet(count);
+                }
+            });
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,220 @@
+package com.moviebooking.service.seat;
+
+import com.moviebooking.entity.Schedule;
+import com.moviebooking.entity.SeatMap;
+import com.moviebooking.repository.ScheduleRepository;
+import com.moviebooking.repository.SeatMapRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Seat-level state per schedule: FREE, HELD or SOLD, kept as two bitmaps in a
+ * single row. Write methods must run inside the booking transaction, after the
+ * schedule's seat counter has been updated, so that the schedules row lock
+ * orders concurrent writers to the same map.
+ */
+@Service
+public class SeatMapService {
+
+    private final SeatMapRepository seatMapRepository;
+    private final ScheduleRepository scheduleRepository;
+
+    @Value("${booking.seat-map.columns:20}")
+    private int defaultColumns;
+
+    public SeatMapService(SeatMapRepository seatMapRepository, ScheduleRepository scheduleRepository) {
+        this.seatMapRepository = seatMapRepository;
+        this.scheduleRepository = scheduleRepository;
+    }
+
+    /**
+     * The stored map, or an unsaved one derived from the schedule's seat counts.
+     */
+    public SeatMap view(Schedule schedule) {
+        return seatMapRepository.findById(schedule.getId())
+                .orElseGet(() -> newMap(schedule, schedule.getTotalSeats() - schedule.getAvailableSeats()));
+    }
+
+    /**
+     * Whether the schedule has a stored map, whose capacity is then fixed.
+     */
+    public boolean mapped(Long scheduleId) {
+        return seatMapRepository.existsById(scheduleId);
+    }
+
+    /**
+     * FREE -> SOLD. Picks best-available seats when {@code labels} is null.
+     */
+    public List<String> sell(Schedule schedule, Collection<String> labels, int count) {
+        return sell(schedule, labels, count, labels != null ? labels.size() : count);
+    }
+
+    /**
+     * As {@link #sell(Schedule, Collection, int)}, for a transaction that took
+     * {@code takenInThisTransaction} seats off the schedule's counter in total,
+     * e.g. several batch lines for one schedule.
+     */
+    public List<String> sell(Schedule schedule, Collection<String> labels, int count, int takenInThisTransaction) {
+        return transition(schedule, labels, count, takenInThisTransaction, true);
+    }
+
+    /**
+     * FREE -> HELD. Picks best-available seats when {@code labels} is null.
+     */
+    public List<String> hold(Schedule schedule, Collection<String> labels, int count) {
+        return transition(schedule, labels, count, labels != null ? labels.size() : count, false);
+    }
+
+    /**
+     * HELD -> SOLD for seats taken earlier with {@link #hold}.
+     */
+    public void commitHeld(Long scheduleId, Collection<String> labels) {
+        SeatMap map = existing(scheduleId);
+        SeatBitmap sold = sold(map);
+        SeatBitmap held = held(map);
+        for (String label : labels) {
+            int i = index(map, label);
+            if (!held.get(i)) throw new ResponseStatusException(HttpStatus.CONFLICT, "Seat " + label + " is not held");
+            held.clear(i);
+            sold.set(i);
+        }
+        save(map, sold, held);
+    }
+
+    /**
+     * HELD -> FREE, or SOLD -> FREE when {@code fromSold} is true.
+     */
+    public void free(Long scheduleId, Collection<String> labels, boolean fromSold) {
+        SeatMap map = seatMapRepository.findById(scheduleId).orElse(null);
+        if (map == null || labels.isEmpty()) return;
+        SeatBitmap sold = sold(map);
+        SeatBitmap held = held(map);
+        for (String label : labels) {
+            int i = index(map, label);
+            if (fromSold) sold.clear(i); else held.clear(i);
+        }
+        save(map, sold, held);
+    }
+
+    public static SeatBitmap sold(SeatMap map) {
+        return SeatBitmap.fromBytes(map.getBits(), 0, map.getCapacity());
+    }
+
+    public static SeatBitmap held(SeatMap map) {
+        return SeatBitmap.fromBytes(map.getBits(), SeatBitmap.byteCount(map.getCapacity()), map.getCapacity());
+    }
+
+    public static String label(SeatMap map, int index) {
+        int row = index / map.getSeatColumns();
+        StringBuilder sb = new StringBuilder();
+        for (int r = row; r >= 0; r = r / 26 - 1) {
+            sb.insert(0, (char) ('A' + r % 26));
+        }
+        return sb.append(index % map.getSeatColumns() + 1).toString();
+    }
+
+    public static int index(SeatMap map, String label) {
+        String s = label == null ? "" : label.trim().toUpperCase();
+        int p = 0;
+        int row = 0;
+        while (p < s.length() && s.charAt(p) >= 'A' && s.charAt(p) <= 'Z') {
+            row = row * 26 + (s.charAt(p) - 'A' + 1);
+            p++;
+        }
+        int col;
+        try {
+            col = Integer.parseInt(s.substring(p));
+        } catch (NumberFormatException e) {
+            col = 0;
+        }
+        int index = (row - 1) * map.getSeatColumns() + (col - 1);
+        if (p == 0 || col < 1 || col > map.getSeatColumns() || index >= map.getCapacity()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown seat " + label);
+        }
+        return index;
+    }
+
+    private List<String> transition(Schedule schedule, Collection<String> labels, int count,
+                                    int takenInThisTransaction, boolean toSold) {
+        SeatMap map = loadOrCreate(schedule, takenInThisTransaction);
+        SeatBitmap sold = sold(map);
+        SeatBitmap held = held(map);
+        int[] picked;
+        if (labels != null) {
+            picked = new int[labels.size()];
+            int k = 0;
+            for (String label : labels) {
+                int i = index(map, label);
+                if (sold.get(i) || held.get(i)) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "Seat " + label + " is not available");
+                }
+                picked[k++] = i;
+            }
+        } else {
+            picked = sold.allocate(held, count, map.getSeatColumns());
+            if (picked == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Not enough seats available");
+            }
+        }
+        List<String> result = new ArrayList<>(picked.length);
+        for (int i : picked) {
+            if (toSold) sold.set(i); else held.set(i);
+            result.add(label(map, i));
+        }
+        save(map, sold, held);
+        return result;
+    }
+
+    private SeatMap existing(Long scheduleId) {
+        return seatMapRepository.findById(scheduleId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Seat map not found"));
+    }
+
+    private SeatMap loadOrCreate(Schedule schedule, int takenInThisTransaction) {
+        return seatMapRepository.findById(schedule.getId()).orElseGet(() -> {
+            // Seats sold before seat maps existed have no position; mark the first ones taken.
+            Integer left = scheduleRepository.findAvailableSeatsById(schedule.getId());
+            int legacySold = schedule.getTotalSeats() - (left != null ? left : 0) - takenInThisTransaction;
+            SeatMap map = newMap(schedule, legacySold);
+            seatMapRepository.insertIfAbsent(map.getScheduleId(), map.getSeatRows(), map.getSeatColumns(),
+                    map.getCapacity(), map.getBits());
+            return existing(schedule.getId());
+        });
+    }
+
+    private SeatMap newMap(Schedule schedule, int soldSeats) {
+        int capacity = Math.max(0, schedule.getTotalSeats());
+        int columns = Math.max(1, Math.min(defaultColumns, capacity));
+        SeatMap map = new SeatMap();
+        map.setScheduleId(schedule.getId());
+        map.setCapacity(capacity);
+        map.setSeatColumns(columns);
+        map.setSeatRows((capacity + columns - 1) / columns);
+        SeatBitmap sold = new SeatBitmap(capacity);
+        for (int i = 0; i < Math.min(soldSeats, capacity); i++) sold.set(i);
+        map.setBits(concat(sold, new SeatBitmap(capacity)));
+        return map;
+    }
+
+    private void save(SeatMap map, SeatBitmap sold, SeatBitmap held) {
+        map.setBits(concat(sold, held));
+        map.setUpdatedAt(LocalDateTime.now());
+        seatMapRepository.save(map);
+    }
+
+    private static byte[] concat(SeatBitmap sold, SeatBitmap held) {
+        byte[] a = sold.toBytes();
+        byte[] b = held.toBytes();
+        byte[] out = new byte[a.length + b.length];
+        System.arraycopy(a, 0, out, 0, a.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+}
@@ -0,0 +1,346 @@
+package com.moviebooking.service.sse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Server-sent event fan-out. Publishing serialises the payload once and only
+ * appends it to each subscriber's bounded buffer; a small pool of writer threads
+ * does the socket writes, so a slow browser never holds up the publisher.
+ * A full buffer drops its oldest frame; frames published with a coalesce key
+ * replace a pending frame with the same key instead of queueing behind it.
+ * Topics that register a resync source send a fresh full payload to any
+ * subscriber that lost a frame. Quiet connections get a heartbeat comment,
+ * and subscribers whose writes fail or stall are evicted.
+ *
+ * A write blocked on a dead peer cannot be interrupted from outside: the
+ * emitter holds its monitor for the whole send, so completing it from here
+ * would only block here too. The server's socket write timeout bounds such a
+ * write, and until it fires the pool runs one extra writer per stalled one,
+ * so stalled clients never hold up delivery to the others.
+ */
+@Service
+public class SseHub {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${sse.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${sse.writer-threads:4}")
+    private int writerThreads;
+
+    @Value("${sse.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${sse.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    @Value("${sse.stall-timeout-ms:30000}")
+    private long stallTimeoutMs;
+
+    private final Map<String, Set<Subscriber>> topics = new ConcurrentHashMap<>();
+    private final Map<String, Resync> resyncSources = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    // Subscribers whose writer is still stuck in send() after being evicted for stalling
+    private final Set<Subscriber> stalled = ConcurrentHashMap.newKeySet();
+    private ThreadPoolExecutor writers;
+
+    public SseHub(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger n = new AtomicInteger();
+        writers = new ThreadPoolExecutor(writerThreads, writerThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "sse-writer-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        writers.shutdownNow();
+        for (Set<Subscriber> subscribers : topics.values()) {
+            for (Subscriber s : subscribers) s.emitter.complete();
+        }
+    }
+
+    /**
+     * Open a stream on {@code topic}. The emitter never times out; it is closed
+     * when the client goes away or is evicted.
+     */
+    public SseEmitter subscribe(String topic) {
+        SseEmitter emitter = new SseEmitter(0L);
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            emitter.complete();
+            return emitter;
+        }
+        Subscriber s = new Subscriber(topic, emitter);
+        topics.computeIfAbsent(topic, k -> ConcurrentHashMap.newKeySet()).add(s);
+        emitter.onCompletion(() -> remove(s));
+        emitter.onTimeout(() -> remove(s));
+        emitter.onError(e -> remove(s));
+        return emitter;
+    }
+
+    /**
+     * Queue {@code data} for one subscriber only, e.g. a greeting or a first snapshot.
+     */
+    public void sendTo(SseEmitter emitter, String topic, String event, Object data) {
+        Set<Subscriber> subscribers = topics.get(topic);
+        if (subscribers == null) return;
+        Frame frame = frame(event, data, null, true);
+        if (frame == null) return;
+        for (Subscriber s : subscribers) {
+            if (s.emitter == emitter) {
+                s.offer(frame);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Send an event to every subscriber of {@code topic}.
+     */
+    public void publish(String topic, String event, Object data) {
+        fanOut(topic, frame(event, data, null, true));
+    }
+
+    /**
+     * As {@link #publish}, but a frame still waiting in a subscriber's buffer
+     * under the same {@code coalesceKey} is replaced rather than followed.
+     */
+    public void publishLatest(String topic, String event, Object data, String coalesceKey) {
+        fanOut(topic, frame(event, data, coalesceKey, true));
+    }
+
+    /**
+     * Full payload to send, as {@code event}, to a subscriber of {@code topic}
+     * that lost a frame, so partial updates never leave it inconsistent.
+     */
+    public void onResync(String topic, String event, Supplier<Object> source) {
+        resyncSources.put(topic, new Resync(event, source));
+    }
+
+    public int subscribers(String topic) {
+        Set<Subscriber> subscribers = topics.get(topic);
+        return subscribers != null ? subscribers.size() : 0;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("subscribers", subscriberCount.get());
+        m.put("dropped", dropped.get());
+        m.put("evicted", evicted.get());
+        m.put("stalledWriters", stalled.size());
+        return m;
+    }
+
+    // Heartbeats keep proxies from closing quiet streams and surface dead clients;
+    // stalled subscribers are evicted and their writer thread replaced until the write times out
+    @Scheduled(fixedDelayString = "${sse.heartbeat-ms:15000}")
+    public void housekeeping() {
+        long now = System.currentTimeMillis();
+        Frame heartbeat = null;
+        for (Set<Subscriber> subscribers : topics.values()) {
+            for (Subscriber s : subscribers) {
+                long since = s.writingSince;
+                if (since != 0 && now - since > stallTimeoutMs) {
+                    // the writer is stuck inside send(); it completes the emitter once that returns or times out
+                    s.closed = true;
+                    stalled.add(s);
+                    remove(s);
+                    evicted.incrementAndGet();
+                } else if (now - s.lastActivity >= heartbeatMs) {
+                    if (heartbeat == null) heartbeat = new Frame(SseEmitter.event().comment("heartbeat").build(), "heartbeat", false);
+                    s.offer(heartbeat);
+                }
+            }
+        }
+        resizeWriters();
+    }
+
+    // One extra thread per stuck writer, up to four times the configured pool
+    private void resizeWriters() {
+        int size = writerThreads + Math.min(stalled.size(), writerThreads * 4);
+        if (size > writers.getMaximumPoolSize()) {
+            writers.setMaximumPoolSize(size);
+            writers.setCorePoolSize(size);
+        } else if (size < writers.getCorePoolSize()) {
+            writers.setCorePoolSize(size);
+            writers.setMaximumPoolSize(size);
+        }
+    }
+
+    private void fanOut(String topic, Frame frame) {
+        Set<Subscriber> subscribers = topics.get(topic);
+        if (subscribers == null || frame == null) return;
+        for (Subscriber s : subscribers) s.offer(frame);
+    }
+
+    private Frame frame(String event, Object data, String coalesceKey, boolean resyncIfLost) {
+        String json;
+        try {
+            json = data instanceof String str ? str : objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            System.out.println("Could not serialise SSE event " + event + ": " + e.getMessage());
+            return null;
+        }
+        return new Frame(SseEmitter.event().name(event).data(json).build(), coalesceKey, resyncIfLost);
+    }
+
+    private void remove(Subscriber s) {
+        Set<Subscriber> subscribers = topics.get(s.topic);
+        if (subscribers != null && subscribers.remove(s)) subscriberCount.decrementAndGet();
+    }
+
+    private void evict(Subscriber s) {
+        if (topics.getOrDefault(s.topic, Set.of()).contains(s)) evicted.incrementAndGet();
+        remove(s);
+        try {
+            s.emitter.complete();
+        } catch (Exception ignored) {
+            // already closed
+        }
+    }
+
+    private static final class Frame {
+        final Set<ResponseBodyEmitter.DataWithMediaType> items;
+        final String coalesceKey;
+        final boolean resyncIfLost;
+
+        Frame(Set<ResponseBodyEmitter.DataWithMediaType> items, String coalesceKey, boolean resyncIfLost) {
+            this.items = items;
+            this.coalesceKey = coalesceKey;
+            this.resyncIfLost = resyncIfLost;
+        }
+    }
+
+    private static final class Resync {
+        final String event;
+        final Supplier<Object> source;
+
+        Resync(String event, Supplier<Object> source) {
+            this.event = event;
+            this.source = source;
+        }
+    }
+
+    private final class Subscriber {
+        final String topic;
+        final SseEmitter emitter;
+        // Guarded by this
+        private final ArrayDeque<Frame> buffer = new ArrayDeque<>();
+        private boolean draining;
+        private boolean lost;
+        volatile boolean closed;
+        volatile long writingSince;
+        volatile long lastActivity = System.currentTimeMillis();
+
+        Subscriber(String topic, SseEmitter emitter) {
+            this.topic = topic;
+            this.emitter = emitter;
+        }
+
+        void offer(Frame frame) {
+            synchronized (this) {
+                if (frame.coalesceKey != null) {
+                    for (Iterator<Frame> it = buffer.iterator(); it.hasNext(); ) {
+                        Frame pending = it.next();
+                        if (frame.coalesceKey.equals(pending.coalesceKey)) {
+                            it.remove();
+                            lost |= pending.resyncIfLost;
+                            break;
+                        }
+                    }
+                }
+                if (buffer.size() >= bufferSize) {
+                    lost |= buffer.poll().resyncIfLost;
+                    dropped.incrementAndGet();
+                }
+                buffer.add(frame);
+                if (draining) return;
+                draining = true;
+            }
+            try {
+                writers.execute(this::drain);
+            } catch (Exception e) {
+                // shutting down
+                synchronized (this) {
+                    draining = false;
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                if (closed) {
+                    evict(this);
+                    return;
+                }
+                Frame frame;
+                boolean resync;
+                synchronized (this) {
+                    resync = lost && resyncSources.containsKey(topic);
+                    lost = false;
+                    if (resync) buffer.removeIf(f -> f.resyncIfLost);
+                    frame = resync ? null : buffer.poll();
+                    if (!resync && frame == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                if (resync) {
+                    Resync source = resyncSources.get(topic);
+                    frame = frame(source.event, source.source.get(), null, true);
+                    if (frame == null) continue;
+                }
+                writingSince = System.currentTimeMillis();
+                try {
+                    emitter.send(frame.items);
+                    lastActivity = System.currentTimeMillis();
+                } catch (IOException | IllegalStateException e) {
+                    writingSince = 0;
+                    stalled.remove(this);
+                    evict(this);
+                    synchronized (this) {
+                        buffer.clear();
+                        draining = false;
+                    }
+                    return;
+                } finally {
+                    writingSince = 0;
+                    stalled.remove(this);
+                }
+            }
+        }
+    }
+}